@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic text corpora, modeled after the input the plugin typically deals with
+ */
+public enum Corpus {
+
+    // Comma separated values: many short lines
+    CSV,
+
+    // Minified JavaScript: one huge line
+    MINIFIED_JS,
+
+    // Log file with long lines
+    LOG,
+
+    // Deeply indented source code
+    DEEP_INDENT;
+
+    private static final long SEED = 20180101L;
+
+    private static final String[] WORDS = {
+            "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "iota", "kappa", "lambda", "mu"
+    };
+
+    /**
+     * @param   size    Amount of characters to be generated (approximately, last line is completed)
+     * @return  String
+     */
+    public String generate(int size) {
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder(size + 256);
+        int lineNumber = 0;
+
+        while (text.length() < size) {
+            switch (this) {
+                case CSV:
+                    appendCsvLine(text, random, lineNumber);
+                    break;
+                case MINIFIED_JS:
+                    appendJsStatement(text, random, lineNumber);
+                    break;
+                case LOG:
+                    appendLogLine(text, random, lineNumber);
+                    break;
+                default:
+                    appendIndentedLine(text, random, lineNumber);
+                    break;
+            }
+            lineNumber++;
+        }
+        if (MINIFIED_JS != this && text.length() > 0 && '\n' == text.charAt(text.length() - 1)) {
+            text.setLength(text.length() - 1);
+        }
+
+        return text.toString();
+    }
+
+    private static void appendCsvLine(StringBuilder text, Random random, int lineNumber) {
+        text.append(lineNumber);
+        for (int column = 0; column < 8; column++) {
+            text.append(", ").append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(1000));
+        }
+        text.append('\n');
+    }
+
+    private static void appendJsStatement(StringBuilder text, Random random, int index) {
+        text.append("var a").append(index).append("=function(b,c){return b.").append(WORDS[random.nextInt(WORDS.length)])
+            .append("(c,").append(random.nextInt(100)).append(")};");
+    }
+
+    private static void appendLogLine(StringBuilder text, Random random, int lineNumber) {
+        text.append("2018-01-01 12:00:").append(lineNumber % 60).append(" INFO [worker-").append(random.nextInt(16)).append("] ");
+        int amountWords = 40 + random.nextInt(120);
+        for (int i = 0; i < amountWords; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(0 == i % 7 ? "=" + random.nextInt(99999) + ", " : " ");
+        }
+        text.append('\n');
+    }
+
+    private static void appendIndentedLine(StringBuilder text, Random random, int lineNumber) {
+        int depth = lineNumber % 24;
+        for (int i = 0; i < depth; i++) {
+            text.append(0 == i % 3 ? '\t' : ' ').append("   ");
+        }
+        text.append("if (").append(WORDS[random.nextInt(WORDS.length)]).append(" != null) { call(")
+            .append(random.nextInt(1000)).append(", ").append(random.nextInt(1000)).append("); }   \n");
+    }
+}
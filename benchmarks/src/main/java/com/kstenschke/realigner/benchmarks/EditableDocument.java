@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import com.kstenschke.realigner.core.LineDocument;
+
+import java.util.Arrays;
+
+/**
+ * Baseline modeled after an IDE document: text in a gap buffer, plus a line set that is updated upon every change,
+ * shifting the start offsets of all following lines. Serves to measure the former approach of editing line by line,
+ * looking up the offsets of each line in the document modified by the preceding edits
+ */
+class EditableDocument implements LineDocument, CharSequence {
+
+    private char[] buffer;
+    private int gapStart;
+    private int gapEnd;
+
+    private int[] lineStartOffsets;
+    private int lineCount;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     */
+    EditableDocument(CharSequence text) {
+        int length = text.length();
+        buffer   = new char[length + 1024];
+        gapStart = length;
+        gapEnd   = buffer.length;
+        for (int offset = 0; offset < length; offset++) {
+            buffer[offset] = text.charAt(offset);
+        }
+        updateLineStartOffsets();
+    }
+
+    /**
+     * @param   offset
+     * @param   string  Text w/o line separators
+     */
+    void insertString(int offset, String string) {
+        int length = string.length();
+        moveGap(offset);
+        if (gapEnd - gapStart < length) {
+            int capacity   = Math.max(buffer.length * 2, buffer.length + length);
+            char[] resized = new char[capacity];
+            int amountTail = buffer.length - gapEnd;
+            System.arraycopy(buffer, 0, resized, 0, gapStart);
+            System.arraycopy(buffer, gapEnd, resized, capacity - amountTail, amountTail);
+            buffer = resized;
+            gapEnd = capacity - amountTail;
+        }
+        string.getChars(0, length, buffer, gapStart);
+        gapStart += length;
+
+        // Line set update: shift all lines after the change
+        for (int lineNumber = getLineNumber(offset) + 1; lineNumber < lineCount; lineNumber++) {
+            lineStartOffsets[lineNumber] += length;
+        }
+    }
+
+    /**
+     * @param   lineNumber
+     * @return  String      Copy of the given line, including its line separator (as extracted per line formerly)
+     */
+    String extractLine(int lineNumber) {
+        int offsetEnd = lineNumber + 1 < lineCount ? lineStartOffsets[lineNumber + 1] : length();
+
+        return subSequence(lineStartOffsets[lineNumber], offsetEnd).toString();
+    }
+
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int amount = gapStart - offset;
+            System.arraycopy(buffer, offset, buffer, gapEnd - amount, amount);
+            gapStart -= amount;
+            gapEnd   -= amount;
+        } else if (offset > gapStart) {
+            int amount = offset - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, amount);
+            gapStart += amount;
+            gapEnd   += amount;
+        }
+    }
+
+    private void updateLineStartOffsets() {
+        int[] offsets = new int[16];
+        int amountLines = 1;
+        for (int offset = 0; offset < length(); offset++) {
+            if ('\n' == charAt(offset)) {
+                if (amountLines == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, amountLines * 2);
+                }
+                offsets[amountLines++] = offset + 1;
+            }
+        }
+        lineStartOffsets = offsets;
+        lineCount        = amountLines;
+    }
+
+    @Override
+    public CharSequence getCharsSequence() {
+        return this;
+    }
+
+    @Override
+    public int getTextLength() {
+        return length();
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public int getLineNumber(int offset) {
+        int index = Arrays.binarySearch(lineStartOffsets, 0, lineCount, offset);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    public int getLineStartOffset(int lineNumber) {
+        return lineStartOffsets[lineNumber];
+    }
+
+    @Override
+    public int getLineEndOffset(int lineNumber) {
+        return lineNumber + 1 < lineCount ? lineStartOffsets[lineNumber + 1] - 1 : length();
+    }
+
+    @Override
+    public int length() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public char charAt(int index) {
+        return buffer[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder sub = new StringBuilder(end - start);
+        for (int offset = start; offset < end; offset++) {
+            sub.append(charAt(offset));
+        }
+
+        return sub.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+}
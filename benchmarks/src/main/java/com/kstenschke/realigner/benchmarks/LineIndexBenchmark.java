@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import com.kstenschke.realigner.core.Cancellation;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.InMemoryDocument;
+import com.kstenschke.realigner.core.LineIndex;
+import com.kstenschke.realigner.core.WrapEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line edits of a selection of 100k lines: the former approach of extracting each line from an IDE-like document
+ * and editing it right away (updating the line set upon every change, see EditableDocument), vs. planning all edits
+ * against a line index built once for the selection and applying them in bulk
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class LineIndexBenchmark {
+
+    private static final String PREFIX  = "/* ";
+    private static final String POSTFIX = " */";
+
+    @Param({"CSV", "LOG", "DEEP_INDENT"})
+    public Corpus corpus;
+
+    @Param({"100000"})
+    public int amountLines;
+
+    private InMemoryDocument document;
+    private EditableDocument editableDocument;
+
+    // Selection: all lines except the first and the last one
+    private int lineNumberStart;
+    private int lineNumberEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int size = 1024;
+        do {
+            size *= 2;
+            document = new InMemoryDocument(corpus.generate(size));
+        } while (document.getLineCount() < amountLines + 2);
+
+        lineNumberStart  = 1;
+        lineNumberEnd    = amountLines;
+        editableDocument = new EditableDocument(document.getCharsSequence());
+    }
+
+    /**
+     * Fresh copy of the document for each invocation of an approach modifying it
+     */
+    @State(Scope.Thread)
+    public static class EditState {
+
+        EditableDocument document;
+
+        @Setup(Level.Invocation)
+        public void setUp(LineIndexBenchmark benchmark) {
+            document = new EditableDocument(benchmark.document.getCharsSequence());
+        }
+    }
+
+    @Benchmark
+    public LineIndex buildLineIndex() {
+        return LineIndex.of(document, lineNumberStart, lineNumberEnd, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public long lookupLinesViaDocument() {
+        long checksum = 0;
+        for (int lineNumber = lineNumberStart; lineNumber <= lineNumberEnd; lineNumber++) {
+            int offsetLineStart = editableDocument.getLineStartOffset(lineNumber);
+            String line         = editableDocument.extractLine(lineNumber);
+            checksum += editableDocument.getLineNumber(offsetLineStart) + offsetLineStart + line.length();
+        }
+
+        return checksum;
+    }
+
+    @Benchmark
+    public long lookupLinesViaLineIndex() {
+        LineIndex lineIndex = LineIndex.of(document, lineNumberStart, lineNumberEnd, Cancellation.NONE);
+        long checksum = 0;
+        for (int lineNumber = lineNumberStart; lineNumber <= lineNumberEnd; lineNumber++) {
+            int offsetLineStart = lineIndex.getLineStartOffset(lineNumber);
+            checksum += lineIndex.getLineNumber(offsetLineStart) + offsetLineStart + lineIndex.getLineEndOffset(lineNumber);
+        }
+
+        return checksum;
+    }
+
+    @Benchmark
+    public EditableDocument wrapLinesViaDocument(EditState state) {
+        EditableDocument editableDocument = state.document;
+        // Bottom-up, so the offsets of lines yet to be wrapped are not shifted by the edits
+        for (int lineNumber = lineNumberEnd; lineNumber >= lineNumberStart; lineNumber--) {
+            int offsetLineStart = editableDocument.getLineStartOffset(lineNumber);
+            String line         = editableDocument.extractLine(lineNumber);
+            int offsetLineEnd   = offsetLineStart + line.length() - ('\n' == line.charAt(line.length() - 1) ? 1 : 0);
+
+            editableDocument.insertString(offsetLineEnd, POSTFIX);
+            editableDocument.insertString(offsetLineStart, PREFIX);
+        }
+
+        return editableDocument;
+    }
+
+    @Benchmark
+    public String wrapLinesViaLineIndex() {
+        EditPlan editPlan = WrapEngine.wrapLines(document, lineNumberStart, lineNumberEnd, PREFIX, POSTFIX, Cancellation.NONE);
+
+        return editPlan.applyTo(document.getCharsSequence());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import com.kstenschke.realigner.core.Cancellation;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.InMemoryDocument;
+import com.kstenschke.realigner.core.OverlongLineEngine;
+import com.kstenschke.realigner.core.ReflowEngine;
+import com.kstenschke.realigner.core.SplitEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting all lines of a corpus by delimiter, reflowing them to a width of 120 columns, and breaking lines exceeding it
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SplitBenchmark {
+
+    @Param({"CSV", "MINIFIED_JS", "LOG", "DEEP_INDENT"})
+    public Corpus corpus;
+
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    private InMemoryDocument document;
+    private String delimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        document  = new InMemoryDocument(corpus.generate(size));
+        delimiter = Corpus.MINIFIED_JS == corpus ? ";" : ",";
+    }
+
+    @Benchmark
+    public EditPlan splitAt() {
+        return SplitEngine.split(document, 0, document.getLineCount() - 1,
+                delimiter, false, SplitEngine.METHOD_DELIMITER_DISPOSAL_AT, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan splitAfterTrimmed() {
+        return SplitEngine.split(document, 0, document.getLineCount() - 1,
+                delimiter, true, SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public String explodeSequential() {
+        CharSequence text = document.getCharsSequence();
+        return SplitEngine.getExplodedLinesText(text, 0, text.length(),
+                delimiter, true, SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER, null, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public String explodeParallel() {
+        CharSequence text = document.getCharsSequence();
+        return SplitEngine.getExplodedLinesText(text, 0, text.length(),
+                delimiter, true, SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER, ForkJoinPool.commonPool(), Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan reflowGreedy() {
+        return ReflowEngine.reflow(document, 0, document.getLineCount() - 1, 120, 4, false, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan reflowOptimalFit() {
+        return ReflowEngine.reflow(document, 0, document.getLineCount() - 1, 120, 4, true, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan breakOverlongLinesSequential() {
+        return OverlongLineEngine.breakOverlongLines(document, 120, 4, null, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan breakOverlongLinesParallel() {
+        return OverlongLineEngine.breakOverlongLines(document, 120, 4, ForkJoinPool.commonPool(), Cancellation.NONE);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import com.kstenschke.realigner.core.DisplayWidth;
+import com.kstenschke.realigner.core.LineView;
+import com.kstenschke.realigner.utils.UtilsQuickWrapsConfig;
+import com.kstenschke.realigner.utils.UtilsTextual;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * String helpers of UtilsTextual, per-line trimming via copies vs. via LineView, display width measuring and parsing of the
+ * legacy quick-wraps config, as upon its migration into QuickWrapStore
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class TextualBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TextState {
+
+        @Param({"CSV", "MINIFIED_JS", "LOG", "DEEP_INDENT"})
+        public Corpus corpus;
+
+        @Param({"1024", "1048576", "104857600"})
+        public int size;
+
+        String text;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            text = corpus.generate(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class QuickWrapsState {
+
+        @Param({"10", "100", "1000"})
+        public int amountWraps;
+
+        String itemsConfig;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            StringBuilder config = new StringBuilder();
+            for (int i = 0; i < amountWraps; i++) {
+                config.append("##WBUTTON##")
+                      .append("##WBLABEL##").append("Wrap ").append(i).append("##/WBLABEL##")
+                      .append("##WBPREFIX##").append("<tag").append(i).append(">##/WBPREFIX##")
+                      .append("##WBPOSTFIX##").append("</tag").append(i).append(">##/WBPOSTFIX##")
+                      .append("##/WBUTTON##");
+            }
+            itemsConfig = config.toString();
+        }
+    }
+
+    @Benchmark
+    public String trimLines(TextState state) {
+        return UtilsTextual.trimLines(state.text);
+    }
+
+    @Benchmark
+    public int trimEachLineSubstring(TextState state) {
+        String text = state.text;
+        int amountChars = 0;
+        for (int offsetLineStart = 0, offsetLineEnd; offsetLineStart < text.length(); offsetLineStart = offsetLineEnd + 1) {
+            offsetLineEnd = text.indexOf('\n', offsetLineStart);
+            if (-1 == offsetLineEnd) {
+                offsetLineEnd = text.length();
+            }
+            amountChars += text.substring(offsetLineStart, offsetLineEnd).trim().length();
+        }
+
+        return amountChars;
+    }
+
+    @Benchmark
+    public int trimEachLineView(TextState state) {
+        String text = state.text;
+        LineView line = new LineView(text, 0, 0);
+        int amountChars = 0;
+        for (int offsetLineStart = 0, offsetLineEnd; offsetLineStart < text.length(); offsetLineStart = offsetLineEnd + 1) {
+            offsetLineEnd = text.indexOf('\n', offsetLineStart);
+            if (-1 == offsetLineEnd) {
+                offsetLineEnd = text.length();
+            }
+            amountChars += line.setRange(offsetLineStart, offsetLineEnd).trim().length();
+        }
+
+        return amountChars;
+    }
+
+    @Benchmark
+    public int getDisplayWidth(TextState state) {
+        return DisplayWidth.getColumns(state.text, 0, state.text.length(), 4);
+    }
+
+    @Benchmark
+    public String getWrapCounterpart() {
+        return UtilsTextual.getWrapCounterpart("<div class=\"outer\"><span>") + UtilsTextual.getWrapCounterpart("/** ([{");
+    }
+
+    @Benchmark
+    public Object[][] parseLegacyQuickWraps(QuickWrapsState state) {
+        return new Object[][] {
+                UtilsQuickWrapsConfig.getAllButtonAttributesByType(state.itemsConfig, "WBLABEL"),
+                UtilsQuickWrapsConfig.getAllButtonAttributesByType(state.itemsConfig, "WBPREFIX"),
+                UtilsQuickWrapsConfig.getAllButtonAttributesByType(state.itemsConfig, "WBPOSTFIX")
+        };
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.benchmarks;
+
+import com.kstenschke.realigner.core.Cancellation;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.InMemoryDocument;
+import com.kstenschke.realigner.core.WrapEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping and unwrapping each line of a corpus
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WrapBenchmark {
+
+    private static final String PREFIX  = "/* ";
+    private static final String POSTFIX = " */";
+
+    @Param({"CSV", "LOG", "DEEP_INDENT"})
+    public Corpus corpus;
+
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    private InMemoryDocument document;
+    private InMemoryDocument wrappedDocument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        document = new InMemoryDocument(corpus.generate(size));
+
+        wrappedDocument = new InMemoryDocument(document.getCharsSequence().toString());
+        wrappedDocument.apply(WrapEngine.wrapLines(wrappedDocument, 0, wrappedDocument.getLineCount() - 1, PREFIX, POSTFIX, Cancellation.NONE));
+    }
+
+    @Benchmark
+    public EditPlan wrap() {
+        return WrapEngine.wrapLines(document, 0, document.getLineCount() - 1, PREFIX, POSTFIX, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public EditPlan unwrap() {
+        return WrapEngine.unwrapLines(wrappedDocument, 0, wrappedDocument.getLineCount() - 1, PREFIX, POSTFIX, Cancellation.NONE);
+    }
+
+    @Benchmark
+    public String wrapAndApply() {
+        return WrapEngine.wrapLines(document, 0, document.getLineCount() - 1, PREFIX, POSTFIX, Cancellation.NONE)
+                .applyTo(document.getCharsSequence());
+    }
+}
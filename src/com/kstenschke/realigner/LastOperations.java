@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner;
+
+import com.kstenschke.realigner.resources.forms.DialogWrapOptions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of the parameters of the last join, split and wrap, to be repeated without dialog.
+ * Loaded from the preferences once when there was no such operation in this session yet
+ */
+public class LastOperations {
+
+    private static volatile Join join = null;
+    private static volatile Split split = null;
+    private static volatile Wrap wrap = null;
+
+    /**
+     * Parameters of a join
+     */
+    public static class Join {
+        public final String glue;
+        public final String linePattern;
+
+        public Join(String glue, String linePattern) {
+            this.glue        = null == glue ? "" : glue;
+            this.linePattern = null == linePattern ? "" : linePattern;
+        }
+    }
+
+    /**
+     * Parameters of a split, or of a reflow when isReflow is set
+     */
+    public static class Split {
+        public final String delimiter;
+        public final boolean isRegex;
+        public final boolean trimWhitespace;
+        public final Integer delimiterDisposalMethod;
+        public final Map<String, Integer> furtherDelimiters;
+        public final boolean isReflow;
+        public final int reflowWidth;
+        public final boolean isOptimalFit;
+
+        public Split(String delimiter, boolean isRegex, boolean trimWhitespace, Integer delimiterDisposalMethod,
+                     Map<String, Integer> furtherDelimiters, boolean isReflow, int reflowWidth, boolean isOptimalFit) {
+            this.delimiter               = null == delimiter ? "" : delimiter;
+            this.isRegex                 = isRegex;
+            this.trimWhitespace          = trimWhitespace;
+            this.delimiterDisposalMethod = delimiterDisposalMethod;
+            this.furtherDelimiters       = Collections.unmodifiableMap(new LinkedHashMap<>(furtherDelimiters));
+            this.isReflow                = isReflow;
+            this.reflowWidth             = reflowWidth;
+            this.isOptimalFit            = isOptimalFit;
+        }
+    }
+
+    /**
+     * Parameters of a wrap or unwrap
+     */
+    public static class Wrap {
+        public final String prefix;
+        public final String postfix;
+        public final int wrapMode;
+        public final int operation;
+
+        /**
+         * @param   prefix
+         * @param   postfix
+         * @param   wrapMode    Wrap each selected line or the whole selection (DialogWrapOptions.MODE_WRAP_...)
+         * @param   operation   Wrap, unwrap or autodetect (DialogWrapOptions.OPERATION_...)
+         */
+        public Wrap(String prefix, String postfix, int wrapMode, int operation) {
+            this.prefix    = null == prefix ? "" : prefix;
+            this.postfix   = null == postfix ? "" : postfix;
+            this.wrapMode  = wrapMode;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * @param   join    Parameters of a join that is being conducted
+     */
+    public static void setJoin(Join join) {
+        LastOperations.join = join;
+    }
+
+    /**
+     * @return  Join    Parameters of the last join
+     */
+    public static Join getJoin() {
+        Join join = LastOperations.join;
+        if (null == join) {
+            join = new Join(Preferences.getJoinGlue(), Preferences.getJoinLinePattern());
+            LastOperations.join = join;
+        }
+
+        return join;
+    }
+
+    /**
+     * @param   split   Parameters of a split that is being conducted
+     */
+    public static void setSplit(Split split) {
+        LastOperations.split = split;
+    }
+
+    /**
+     * @return  Split   Parameters of the last split
+     */
+    public static Split getSplit() {
+        Split split = LastOperations.split;
+        if (null == split) {
+            split = new Split(
+                    Preferences.getSplitDelimiter(),
+                    Preferences.getIsSplitDelimiterRegex(),
+                    Preferences.getIsSplitIsSelectedTrimWhitespace(),
+                    Integer.parseInt(Preferences.getSplitWhere()),
+                    Preferences.getSplitFurtherDelimiters(),
+                    Preferences.getIsSplitReflow(),
+                    Preferences.getReflowWidth(),
+                    Preferences.getIsReflowOptimalFit());
+            LastOperations.split = split;
+        }
+
+        return split;
+    }
+
+    /**
+     * @param   wrap    Parameters of a wrap that is being conducted
+     */
+    public static void setWrap(Wrap wrap) {
+        LastOperations.wrap = wrap;
+    }
+
+    /**
+     * @return  Wrap    Parameters of the last wrap
+     */
+    public static Wrap getWrap() {
+        Wrap wrap = LastOperations.wrap;
+        if (null == wrap) {
+            int operation = Preferences.getQuickWrapMode();
+            wrap = new Wrap(
+                    Preferences.getWrapPrefix(),
+                    Preferences.getWrapPostfix(),
+                    Preferences.getMultiLineWrapMode(),
+                    DialogWrapOptions.OPERATION_UNWRAP == operation || DialogWrapOptions.OPERATION_AUTODETECT == operation
+                            ? operation
+                            : DialogWrapOptions.OPERATION_WRAP);
+            LastOperations.wrap = wrap;
+        }
+
+        return wrap;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner;
+
+import com.kstenschke.realigner.listeners.ComponentListenerDialog;
+import com.kstenschke.realigner.resources.forms.DialogJoinOptions;
+import com.kstenschke.realigner.resources.forms.DialogSplitOptions;
+import com.kstenschke.realigner.resources.forms.DialogWrapOptions;
+
+import javax.swing.*;
+
+/**
+ * Single, reused instances of the options dialogs. Building a dialog (form, peer, layout) is costly, so each is created
+ * once, prewarmed after startup, and hidden instead of disposed after use. To be accessed from the event dispatch thread only
+ */
+public class OptionsDialogs {
+
+    private static DialogWrapOptions dialogWrapOptions = null;
+    private static DialogSplitOptions dialogSplitOptions = null;
+    private static DialogJoinOptions dialogJoinOptions = null;
+
+    /**
+     * @param   isMultiLineSelection
+     * @return  DialogWrapOptions       Wrap options dialog, reset from its previous use
+     */
+    public static DialogWrapOptions getWrapOptions(boolean isMultiLineSelection) {
+        if (null == dialogWrapOptions) {
+            dialogWrapOptions = new DialogWrapOptions();
+            dialogWrapOptions.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_WRAP));
+        }
+        dialogWrapOptions.reset(isMultiLineSelection);
+
+        return dialogWrapOptions;
+    }
+
+    /**
+     * @return  DialogSplitOptions      Split options dialog, reset from its previous use
+     */
+    public static DialogSplitOptions getSplitOptions() {
+        if (null == dialogSplitOptions) {
+            dialogSplitOptions = new DialogSplitOptions();
+            dialogSplitOptions.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_SPLIT));
+        }
+        dialogSplitOptions.reset();
+
+        return dialogSplitOptions;
+    }
+
+    /**
+     * @return  DialogJoinOptions       Join options dialog, reset from its previous use
+     */
+    public static DialogJoinOptions getJoinOptions() {
+        if (null == dialogJoinOptions) {
+            dialogJoinOptions = new DialogJoinOptions();
+            dialogJoinOptions.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_JOIN));
+        }
+        dialogJoinOptions.reset();
+
+        return dialogJoinOptions;
+    }
+
+    /**
+     * Create all dialogs and lay them out (creating their native peers) without showing them,
+     * so their first opening costs no more than any later one
+     */
+    public static void prewarm() {
+        // Dialogs created already are left alone, they might be in use
+        if (null == dialogWrapOptions) {
+            prewarm(getWrapOptions(true));
+        }
+        if (null == dialogSplitOptions) {
+            prewarm(getSplitOptions());
+        }
+        if (null == dialogJoinOptions) {
+            prewarm(getJoinOptions());
+        }
+    }
+
+    /**
+     * @param   dialog
+     */
+    private static void prewarm(JDialog dialog) {
+        dialog.pack();
+    }
+}
@@ -15,30 +15,36 @@
  */
 package com.kstenschke.realigner;
 
-import com.kstenschke.realigner.SettingsQuickWraps;
 import com.kstenschke.realigner.listeners.PopupListener;
+import com.kstenschke.realigner.models.QuickWrap;
 import com.kstenschke.realigner.resources.Icons;
 import com.kstenschke.realigner.resources.StaticTexts;
 import com.kstenschke.realigner.resources.forms.DialogWrapOptions;
 
 import javax.swing.*;
 
-public class PopupWrapButton {
+public class PopupQuickWrapList {
 
     private final JPopupMenu popup;
 
     /**
      * Constructor
+     *
+     * @param list      List of quick wraps, the popup refers to the selected one
+     * @param dialog
      */
-    public PopupWrapButton(final JButton button, final DialogWrapOptions dialog) {
+    public PopupQuickWrapList(final JList<QuickWrap> list, final DialogWrapOptions dialog) {
         this.popup = new JPopupMenu();
 
-        // Remove QuickWrap Button
+        // Remove QuickWrap
         JMenuItem menuItemSelectedBookmarkRemove    = new JMenuItem(StaticTexts.POPUP_QUICKWRAP_REMOVE);
         menuItemSelectedBookmarkRemove.setIcon(Icons.ICON_DELETE);
         menuItemSelectedBookmarkRemove.addActionListener(e -> {
-            SettingsQuickWraps.removeWrapButton(button.getText());
-            dialog.refreshQuickWrapButtons();
+            QuickWrap quickWrap = list.getSelectedValue();
+            if (null != quickWrap) {
+                SettingsQuickWraps.removeWrapButton(quickWrap.getLabel());
+                dialog.refreshQuickWraps();
+            }
         });
 
         this.popup.add(menuItemSelectedBookmarkRemove);
@@ -15,15 +15,40 @@
  */
 package com.kstenschke.realigner;
 
+import com.intellij.ide.AppLifecycleListener;
 import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.application.ApplicationManager;
 import org.jetbrains.annotations.NonNls;
 
+import javax.swing.Timer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * Utility functions for preferences handling
  * All preferences of the Realigner plugin are stored on application level (not per project)
+ *
+ * Properties are held in an in-memory snapshot: each is read from the PropertiesComponent only once, changes are
+ * applied to the snapshot right away and written behind, batched: at most once per second, when a dialog is closed and
+ * before the application is closed
  */
 public class Preferences {
 
+    // Delay of writing changed properties, coalescing all changes made meanwhile
+    private static final int FLUSH_DELAY_MILLIS = 1000;
+
+    // Properties read or changed so far, null values included. Guarded by itself
+    private static final Map<String, String> snapshot = new HashMap<>();
+
+    // Names of properties changed in the snapshot but not written yet. Guarded by snapshot
+    private static final Set<String> changedPropertyNames = new LinkedHashSet<>();
+
+    private static Timer flushTimer = null;
+
     // Dialog IDs
     @NonNls
     public static final String ID_DIALOG_JOIN = "PluginRealiginer.DialogJoin";
@@ -51,6 +76,28 @@ public class Preferences {
     private static final String PROPERTY_SPLIT_TRIM_WHITESPACE = "PluginRealiginer.SplitTrimWhitespace";
     @NonNls
     private static final String PROPERTY_SPLIT_WHERE = "PluginRealiginer.SplitSplitWhere";
+    @NonNls
+    private static final String PROPERTY_SPLIT_IS_REGEX = "PluginRealiginer.SplitIsRegex";
+    @NonNls
+    private static final String PROPERTY_SPLIT_FURTHER_DELIMITERS = "PluginRealiginer.SplitFurtherDelimiters";
+    @NonNls
+    private static final String PROPERTY_SPLIT_IS_REFLOW = "PluginRealiginer.SplitIsReflow";
+    @NonNls
+    private static final String PROPERTY_REFLOW_WIDTH = "PluginRealiginer.ReflowWidth";
+    @NonNls
+    private static final String PROPERTY_REFLOW_IS_OPTIMAL_FIT = "PluginRealiginer.ReflowIsOptimalFit";
+    @NonNls
+    private static final String PROPERTY_JOIN_LINE_PATTERN = "PluginRealiginer.JoinLinePattern";
+
+    // Maximum duration of matching a regular expression upon split / join
+    @NonNls
+    private static final String PROPERTY_REGEX_TIMEOUT_MILLIS = "PluginRealiginer.RegexTimeoutMillis";
+
+    // Operations affecting at least this many lines or characters are run with a cancelable progress indicator
+    @NonNls
+    private static final String PROPERTY_PROGRESS_MIN_LINES = "PluginRealiginer.ProgressMinLines";
+    @NonNls
+    private static final String PROPERTY_PROGRESS_MIN_CHARS = "PluginRealiginer.ProgressMinChars";
 
     /**
      * Store wrap preferences
@@ -59,50 +106,141 @@ public class Preferences {
      * @param postfix Wrap postfix string (RHS)
      */
     public static void saveWrapProperties(String prefix, String postfix) {
-        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
-
-        propertiesComponent.setValue(PROPERTY_WRAP_PREFIX, prefix);
-        propertiesComponent.setValue(PROPERTY_WRAP_POSTFIX, postfix);
+        setProperty(PROPERTY_WRAP_PREFIX, prefix);
+        setProperty(PROPERTY_WRAP_POSTFIX, postfix);
     }
 
     /**
      * @param mode Un/wrap
      */
     public static void saveMultiLineWrapMode(Integer mode) {
-        PropertiesComponent.getInstance().setValue(PROPERTY_MODE_WRAP_MULTILINE, mode.toString());
+        setProperty(PROPERTY_MODE_WRAP_MULTILINE, mode.toString());
     }
 
     /**
      * @param mode Un/wrap
      */
     public static void saveQuickWrapMode(Integer mode) {
-        PropertiesComponent.getInstance().setValue(PROPERTY_MODE_WRAP_QUICK, mode.toString());
+        setProperty(PROPERTY_MODE_WRAP_QUICK, mode.toString());
     }
 
     /**
      * Store split preferences
      *
      * @param delimiter               Delimiter string
+     * @param isRegex                 Is the delimiter a regular expression?
      * @param trimWhitespace          Trim items whitespace?
      * @param delimiterDisposalMethod Split at/after/before?
      */
-    public static void saveSplitProperties(String delimiter, boolean trimWhitespace, Integer delimiterDisposalMethod) {
-        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
-
-        propertiesComponent.setValue(PROPERTY_SPLIT_DELIMITER, delimiter);
-        propertiesComponent.setValue(PROPERTY_SPLIT_TRIM_WHITESPACE, trimWhitespace ? "1" : "0");
+    public static void saveSplitProperties(String delimiter, boolean isRegex, boolean trimWhitespace, Integer delimiterDisposalMethod) {
+        setProperty(PROPERTY_SPLIT_DELIMITER, delimiter);
+        setProperty(PROPERTY_SPLIT_IS_REGEX, isRegex ? "1" : "0");
+        setProperty(PROPERTY_SPLIT_TRIM_WHITESPACE, trimWhitespace ? "1" : "0");
 
         if (delimiterDisposalMethod > 2) delimiterDisposalMethod = 0;
-        propertiesComponent.setValue(PROPERTY_SPLIT_WHERE, delimiterDisposalMethod.toString());
+        setProperty(PROPERTY_SPLIT_WHERE, delimiterDisposalMethod.toString());
     }
 
     /**
-     * Store wrap preferences
+     * Store further split delimiters, one per line: delimiter disposal method digit followed by the delimiter
      *
-     * @param glue Join glue string
+     * @param delimiters Further delimiters mapped to their delimiter disposal method
+     */
+    public static void saveSplitFurtherDelimiters(Map<String, Integer> delimiters) {
+        StringBuilder config = new StringBuilder();
+        for (Map.Entry<String, Integer> delimiter : delimiters.entrySet()) {
+            if (config.length() > 0) {
+                config.append('\n');
+            }
+            config.append(delimiter.getValue()).append(delimiter.getKey());
+        }
+
+        setProperty(PROPERTY_SPLIT_FURTHER_DELIMITERS, config.toString());
+    }
+
+    /**
+     * Store reflow preferences
+     *
+     * @param isReflow     Reflow selected paragraphs instead of splitting by delimiter?
+     * @param width        Maximum line width in columns
+     * @param isOptimalFit Minimize raggedness instead of filling lines greedily?
+     */
+    public static void saveReflowProperties(boolean isReflow, int width, boolean isOptimalFit) {
+        setProperty(PROPERTY_SPLIT_IS_REFLOW, isReflow ? "1" : "0");
+        setProperty(PROPERTY_REFLOW_WIDTH, Integer.toString(width));
+        setProperty(PROPERTY_REFLOW_IS_OPTIMAL_FIT, isOptimalFit ? "1" : "0");
+    }
+
+    /**
+     * Store join preferences
+     *
+     * @param glue        Join glue string
+     * @param linePattern Regular expression of lines to be joined to their preceding line, empty: join all lines
+     */
+    public static void saveJoinProperties(String glue, String linePattern) {
+        setProperty(PROPERTY_JOIN_GLUE, glue);
+        setProperty(PROPERTY_JOIN_LINE_PATTERN, linePattern);
+    }
+
+    /**
+     * Write all changed properties to the PropertiesComponent now
+     */
+    public static void flush() {
+        Map<String, String> changedProperties = new LinkedHashMap<>();
+        synchronized (snapshot) {
+            if (null != flushTimer) {
+                flushTimer.stop();
+            }
+            for (String propertyName : changedPropertyNames) {
+                changedProperties.put(propertyName, snapshot.get(propertyName));
+            }
+            changedPropertyNames.clear();
+        }
+        if (changedProperties.isEmpty()) {
+            return;
+        }
+
+        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
+        for (Map.Entry<String, String> property : changedProperties.entrySet()) {
+            propertiesComponent.setValue(property.getKey(), property.getValue());
+        }
+    }
+
+    /**
+     * Change the given property in the snapshot, schedule writing it unless a write is pending already
+     *
+     * @param propertyName Name of the preference property
+     * @param value        New value
+     */
+    private static void setProperty(String propertyName, String value) {
+        synchronized (snapshot) {
+            if (snapshot.containsKey(propertyName) && Objects.equals(value, snapshot.get(propertyName))) {
+                return;
+            }
+            snapshot.put(propertyName, value);
+            changedPropertyNames.add(propertyName);
+
+            if (null == flushTimer) {
+                flushTimer = new Timer(FLUSH_DELAY_MILLIS, e -> flush());
+                flushTimer.setRepeats(false);
+                flushOnAppClose();
+            }
+            if (!flushTimer.isRunning()) {
+                flushTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Write changes still pending when the application is closed, before its settings are saved
      */
-    public static void saveJoinProperties(String glue) {
-        PropertiesComponent.getInstance().setValue(PROPERTY_JOIN_GLUE, glue);
+    private static void flushOnAppClose() {
+        ApplicationManager.getApplication().getMessageBus().connect().subscribe(AppLifecycleListener.TOPIC, new AppLifecycleListener() {
+            @Override
+            public void appWillBeClosed(boolean isRestart) {
+                flush();
+            }
+        });
     }
 
     /**
@@ -112,7 +250,15 @@ public class Preferences {
      * @return String
      */
     private static String getProperty(String propertyName, String defaultValue, boolean setDefaultIfEmpty) {
-        String value = PropertiesComponent.getInstance().getValue(propertyName);
+        String value;
+        synchronized (snapshot) {
+            if (snapshot.containsKey(propertyName)) {
+                value = snapshot.get(propertyName);
+            } else {
+                value = PropertiesComponent.getInstance().getValue(propertyName);
+                snapshot.put(propertyName, value);
+            }
+        }
         if (null == value) {
             value = defaultValue;
         }
@@ -157,6 +303,53 @@ public class Preferences {
                 true));
     }
 
+    /**
+     * @return boolean  Is the split delimiter a regular expression?
+     */
+    public static boolean getIsSplitDelimiterRegex() {
+        return "1".equals(getProperty(PROPERTY_SPLIT_IS_REGEX, "0", true));
+    }
+
+    /**
+     * @return Map  Further split delimiters mapped to their delimiter disposal method
+     */
+    public static Map<String, Integer> getSplitFurtherDelimiters() {
+        Map<String, Integer> delimiters = new LinkedHashMap<>();
+        for (String line : getProperty(PROPERTY_SPLIT_FURTHER_DELIMITERS, "", false).split("\n")) {
+            if (line.length() > 1 && line.charAt(0) >= '0' && line.charAt(0) <= '2') {
+                delimiters.put(line.substring(1), line.charAt(0) - '0');
+            }
+        }
+
+        return delimiters;
+    }
+
+    /**
+     * @return boolean  Reflow selected paragraphs instead of splitting by delimiter?
+     */
+    public static boolean getIsSplitReflow() {
+        return "1".equals(getProperty(PROPERTY_SPLIT_IS_REFLOW, "0", true));
+    }
+
+    /**
+     * @return int  Maximum line width in columns when reflowing paragraphs, also used when splitting at soft-wrap
+     */
+    public static int getReflowWidth() {
+        try {
+            int width = Integer.parseInt(getProperty(PROPERTY_REFLOW_WIDTH, "120", true));
+            return width > 0 ? width : 120;
+        } catch (NumberFormatException e) {
+            return 120;
+        }
+    }
+
+    /**
+     * @return boolean  Minimize raggedness when reflowing, instead of filling lines greedily?
+     */
+    public static boolean getIsReflowOptimalFit() {
+        return "1".equals(getProperty(PROPERTY_REFLOW_IS_OPTIMAL_FIT, "0", true));
+    }
+
     /**
      * Get split option: split at/before/after delimiter
      *
@@ -173,6 +366,13 @@ public class Preferences {
         return getProperty(PROPERTY_JOIN_GLUE, "", false);
     }
 
+    /**
+     * @return String  Regular expression of lines to be joined to their preceding line, empty: join all lines
+     */
+    public static String getJoinLinePattern() {
+        return getProperty(PROPERTY_JOIN_LINE_PATTERN, "", false);
+    }
+
     /**
      * @return String  Wrap prefix
      */
@@ -187,8 +387,43 @@ public class Preferences {
         return getProperty(PROPERTY_WRAP_POSTFIX, ", ", false);
     }
 
+    /**
+     * Hidden property, not exposed in the UI
+     *
+     * @return int  Minimum amount of affected lines to run an operation with progress indicator
+     */
+    public static int getProgressMinLines() {
+        try {
+            int amountLines = Integer.parseInt(getProperty(PROPERTY_PROGRESS_MIN_LINES, "10000", true));
+            return amountLines > 0 ? amountLines : 10000;
+        } catch (NumberFormatException e) {
+            return 10000;
+        }
+    }
+
+    /**
+     * Hidden property, not exposed in the UI
+     *
+     * @return int  Minimum amount of affected characters to run an operation with progress indicator
+     */
+    public static int getProgressMinChars() {
+        try {
+            int amountChars = Integer.parseInt(getProperty(PROPERTY_PROGRESS_MIN_CHARS, "1000000", true));
+            return amountChars > 0 ? amountChars : 1000000;
+        } catch (NumberFormatException e) {
+            return 1000000;
+        }
+    }
+
+    /**
+     * @return long  Maximum duration of matching a regular expression upon split / join, in milliseconds
+     */
+    public static long getRegexTimeoutMillis() {
+        return Long.parseLong(getProperty(PROPERTY_REGEX_TIMEOUT_MILLIS, "2000", true));
+    }
+
     public static void saveDialogPosition(String idDialog, Integer x, Integer y) {
-        PropertiesComponent.getInstance().setValue(idDialog + ".Position", x.toString() + "x" + y.toString());
+        setProperty(idDialog + ".Position", x.toString() + "x" + y.toString());
     }
 
     public static String getDialogPosition(String idDialog) {
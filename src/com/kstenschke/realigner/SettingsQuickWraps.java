@@ -15,18 +15,13 @@
  */
 package com.kstenschke.realigner;
 
-import com.intellij.ide.util.PropertiesComponent;
-import org.jetbrains.annotations.NonNls;
+import com.kstenschke.realigner.models.QuickWrap;
+import com.kstenschke.realigner.models.QuickWrapStore;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class SettingsQuickWraps {
 
-    // Wrap button items are stored custom serialized: each item as a config string
-    @NonNls
-    private static final String PROPERTY_WRAP_BUTTONS = "";
-
     /**
      * Store given wrap button config into wrap buttons store
      *
@@ -34,53 +29,20 @@ public class SettingsQuickWraps {
      * @param   prefix    Wrap LHS string
      * @param   postfix   Wrap RHS string
      */
-    private static void saveButton(String label, String prefix, String postfix, Boolean saveTopMost) {
+    public static void saveButton(String label, String prefix, String postfix) {
         if (!label.isEmpty()) {
-            // Delete pre-existing button config with same label, if stored already
-            removeWrapButton(label);
-
-            // Get new button config, stored button items
-            String newButtonConfigStr = renderButtonConfigStr(label, prefix, postfix);
-            String storeWrapButtons = loadButtonItemsConfig();
-
-            if (null == storeWrapButtons) {
-                storeWrapButtons = "";
-            }
-
-            // Store button config
-            storeWrapButtons = saveTopMost
-                    ? newButtonConfigStr.concat(storeWrapButtons)
-                    : storeWrapButtons.concat(newButtonConfigStr);
-            saveButtonItemsConfig(storeWrapButtons);
+            // Replaces pre-existing button config with same label, if stored already
+            QuickWrapStore.getInstance().add(new QuickWrap(label, prefix, postfix));
         }
     }
 
-    public static void saveButton(String label, String prefix, String postfix) {
-        saveButton(label, prefix, postfix, false);
-    }
-
-    public static void makeButtonTopMost(String buttonLabel, String prefix, String postfix) {
-        removeWrapButton(buttonLabel);
-        saveButton(buttonLabel, prefix, postfix, true);
-    }
-
     /**
-     * Store given wrap buttons' items config
+     * Record a use of the button with the given label, ranking it up
      *
-     * @param   itemsConfig      Custom serialized items config string
+     * @param   label
      */
-    private static void saveButtonItemsConfig(String itemsConfig) {
-        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
-        propertiesComponent.setValue(PROPERTY_WRAP_BUTTONS, itemsConfig);
-    }
-
-    /**
-     * @return  String      Wrap buttons setting
-     */
-    private static String loadButtonItemsConfig() {
-        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
-
-        return propertiesComponent.getValue(PROPERTY_WRAP_BUTTONS);
+    public static void recordButtonUse(String label) {
+        QuickWrapStore.getInstance().recordUse(label, System.currentTimeMillis());
     }
 
     /**
@@ -89,110 +51,20 @@ public class SettingsQuickWraps {
      * @param   label     Label of button to be removed
      */
     static void removeWrapButton(String label) {
-        Object[] buttonLabels     = getAllButtonLabels();
-        Integer deleteButtonIndex = null;
-        for (int i = 0; i < buttonLabels.length; i++) {
-            if (buttonLabels[i].equals(label)) {
-                deleteButtonIndex = i;
-            }
-        }
-        if (null == deleteButtonIndex) {
-            return;
-        }
-
-        // Remove button config with found index
-        String storeItemsConfig = loadButtonItemsConfig();
-
-        String buttonsConfigWithoutDeletedButton = "";
-        String[] buttonsConfigs = storeItemsConfig.split("##WBUTTON####WBLABEL##");
-        for (int i = 1; i < buttonsConfigs.length; i++) {
-            if (i != (deleteButtonIndex + 1)) {
-                buttonsConfigWithoutDeletedButton = buttonsConfigWithoutDeletedButton.concat("##WBUTTON####WBLABEL##" + buttonsConfigs[i]);
-            }
-        }
-        saveButtonItemsConfig(buttonsConfigWithoutDeletedButton);
-    }
-
-    /**
-     * @param   label     Item label
-     * @param   prefix    Wrap LHS string
-     * @param   postfix   Wrap RHS string
-     * @return  String    configuration string for given wrap button options
-     */
-    private static String renderButtonConfigStr(String label, String prefix, String postfix) {
-        return  "##WBUTTON##"
-          + "##WBLABEL##" + label + "##/WBLABEL##"
-          + "##WBPREFIX##" + prefix + "##/WBPREFIX##"
-          + "##WBPOSTFIX##" + postfix + "##/WBPOSTFIX##"
-          + "##/WBUTTON##";
-    }
-
-    /**
-     * @return  Object[]    Array of stored buttons' labels
-     */
-    public static Object[] getAllButtonLabels() {
-        return getAllButtonAttributesByType("WBLABEL");
-    }
-
-    /**
-     * @return  Object[]    Array of stored buttons' prefix values
-     */
-    public static Object[] getAllButtonPrefixes() {
-        return getAllButtonAttributesByType("WBPREFIX");
-    }
-
-    /**
-     * @return  Object[]    Array of stored buttons' postfix values
-     */
-    public static Object[] getAllButtonPostfixes() {
-        return getAllButtonAttributesByType("WBPOSTFIX");
-    }
-
-    public static String getButtonPrefix(int index) {
-        Object[] prefixes = getAllButtonPrefixes();
-
-        return prefixes.length >= index ? prefixes[index].toString() : "";
-    }
-
-    public static String getButtonPostfix(int index) {
-        Object[] postfixes = getAllButtonPostfixes();
-
-        return postfixes.length >= index ? postfixes[index].toString() : "";
-    }
-
-    /**
-     * @param   typeName    String e.g. "WBPREFIX"
-     * @return  Object[]    Array of stored buttons' prefix values
-     */
-    private static Object[] getAllButtonAttributesByType(String typeName) {
-        typeName = typeName.trim().toUpperCase();
-
-        String storeItemsConfig = loadButtonItemsConfig();
-
-        // Extract only item prefixes into array
-        List<String> items = new ArrayList<>();
-        if (storeItemsConfig != null && !storeItemsConfig.isEmpty()) {
-            String[] buttonConfigs = storeItemsConfig.split("##" + typeName + "##");
-
-            for (int i = 1; i < buttonConfigs.length; i++) {
-                items.add(buttonConfigs[i].split("##/" + typeName + "##")[0]);
-            }
-        }
-
-        return items.toArray();
+        QuickWrapStore.getInstance().remove(label);
     }
 
     /**
-     * @return  Integer     Amount of stored wrap buttons
+     * @return  List    All stored quick-wraps, in order of their buttons (most frecently used first)
      */
-    private static Integer getAmountButtons() {
-        return getAllButtonLabels().length;
+    public static List<QuickWrap> getQuickWraps() {
+        return QuickWrapStore.getInstance().getQuickWraps();
     }
 
     /**
      * @return  boolean     Are any wrap buttons configured?
      */
     public static boolean areAnyButtonsConfigured() {
-        return getAmountButtons() > 0;
+        return QuickWrapStore.getInstance().size() > 0;
     }
 }
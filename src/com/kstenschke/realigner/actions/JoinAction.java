@@ -16,14 +16,12 @@
 package com.kstenschke.realigner.actions;
 
 import com.intellij.openapi.actionSystem.*;
-import com.intellij.openapi.command.CommandProcessor;
-import com.intellij.openapi.command.UndoConfirmationPolicy;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.project.Project;
 import com.kstenschke.realigner.*;
-import com.kstenschke.realigner.listeners.ComponentListenerDialog;
+import com.kstenschke.realigner.core.PatternCache;
 import com.kstenschke.realigner.models.Joiner;
 import com.kstenschke.realigner.resources.StaticTexts;
 import com.kstenschke.realigner.resources.forms.DialogJoinOptions;
@@ -31,6 +29,7 @@ import com.kstenschke.realigner.utils.UtilsEnvironment;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import java.util.regex.PatternSyntaxException;
 
 class JoinAction extends AnAction {
     private Project project;
@@ -50,6 +49,14 @@ class JoinAction extends AnAction {
     }
 
     private boolean canEnable() {
+        return isSelectionMultiLine(editor);
+    }
+
+    /**
+     * @param   editor
+     * @return  boolean     Does the selection span multiple lines?
+     */
+    static boolean isSelectionMultiLine(Editor editor) {
         SelectionModel selectionModel = editor.getSelectionModel();
         if (!selectionModel.hasSelection()) {
             return false;
@@ -89,20 +96,18 @@ class JoinAction extends AnAction {
             if (document.getLineStartOffset(lineNumberSelEnd) == offsetEnd) {
                 lineNumberSelEnd--;
             }
-            final int lineNumberSelEndFin = lineNumberSelEnd;
 
             if (lineNumberSelEnd > lineNumberSelStart) {
                 DialogJoinOptions optionsDialog = showOptionsDialog();
                 if (optionsDialog.clickedOk) {
-                    String glue = optionsDialog.textFieldGlue.getText();
+                    String glue        = optionsDialog.textFieldGlue.getText();
+                    String linePattern = optionsDialog.getLinePattern();
                     if (null != glue) {
-                        Preferences.saveJoinProperties(glue);
-                        Joiner joiner = new Joiner();
-                        CommandProcessor.getInstance().executeCommand(
-                                project,
-                                () -> joiner.joinLines(document, lineNumberSelStart, lineNumberSelEndFin, glue),
-                                StaticTexts.UNDO_HISTORY_JOIN,
-                                UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+                        Preferences.saveJoinProperties(glue, linePattern);
+
+                        LastOperations.Join join = new LastOperations.Join(glue, linePattern);
+                        LastOperations.setJoin(join);
+                        join(project, editor, join);
                         cannotJoin = false;
                     }
                 }
@@ -115,18 +120,49 @@ class JoinAction extends AnAction {
         }
     }
 
+    /**
+     * Join the selected lines, w/o any dialog
+     *
+     * @param   project
+     * @param   editor
+     * @param   join        Parameters of the join
+     */
+    static void join(Project project, Editor editor, LastOperations.Join join) {
+        if (isValidRegex(editor, join.linePattern)) {
+            new Joiner(project, editor, join.glue, join.linePattern).joinLines();
+        }
+    }
+
+    /**
+     * @param   editor
+     * @param   linePattern
+     * @return  boolean     Is the given pattern empty or a valid regular expression? Displays a message if not
+     */
+    private static boolean isValidRegex(Editor editor, String linePattern) {
+        if (null == linePattern || linePattern.isEmpty()) {
+            return true;
+        }
+        try {
+            PatternCache.get(linePattern, 0);
+            return true;
+        } catch (PatternSyntaxException e) {
+            JOptionPane.showMessageDialog(editor.getComponent(), StaticTexts.NOTIFICATION_REGEX_INVALID + e.getDescription());
+            return false;
+        }
+    }
+
     /**
      * Setup and display options dialog for split action
      *
      * @return Split options dialog
      */
     private DialogJoinOptions showOptionsDialog() {
-        DialogJoinOptions optionsDialog = new DialogJoinOptions();
+        DialogJoinOptions optionsDialog = OptionsDialogs.getJoinOptions();
 
         // Load and init dialog options from preferences
         optionsDialog.setGlue(Preferences.getJoinGlue());
+        optionsDialog.setLinePattern(Preferences.getJoinLinePattern());
 
-        optionsDialog.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_JOIN));
         UtilsEnvironment.setDialogVisible(editor, Preferences.ID_DIALOG_JOIN, optionsDialog, StaticTexts.MESSAGE_TITLE_JOIN);
 
         return optionsDialog;
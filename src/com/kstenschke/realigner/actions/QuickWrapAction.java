@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.actions;
+
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.kstenschke.realigner.LastOperations;
+import com.kstenschke.realigner.Preferences;
+import com.kstenschke.realigner.SettingsQuickWraps;
+import com.kstenschke.realigner.models.QuickWrap;
+import com.kstenschke.realigner.models.QuickWrapStore;
+import com.kstenschke.realigner.models.Wrapper;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Un/wrap with one quick-wrap, w/o options dialog. Registered dynamically, once per stored quick-wrap (see QuickWrapActions)
+ */
+class QuickWrapAction extends AnAction {
+
+    private final String label;
+
+    /**
+     * Constructor
+     *
+     * @param   label   Label of the quick-wrap
+     */
+    QuickWrapAction(String label) {
+        super("Quick-Wrap: " + label, "Un/wrap with the prefix and postfix of the quick-wrap \"" + label + "\"", null);
+        this.label = label;
+    }
+
+    /**
+     * Disable when no editor open
+     *
+     * @param   event   Action system event
+     */
+    public void update(@NotNull AnActionEvent event) {
+        event.getPresentation().setEnabled(null != event.getData(PlatformDataKeys.EDITOR));
+    }
+
+    /**
+     * Un/wrap selection or caret line or each of the selected lines, per quick-wrap mode (wrap, unwrap or autodetect)
+     *
+     * @param   event   Action system event
+     */
+    public void actionPerformed(@NotNull final AnActionEvent event) {
+        Project project = event.getData(PlatformDataKeys.PROJECT);
+        Editor editor   = event.getData(PlatformDataKeys.EDITOR);
+        if (null == editor) {
+            return;
+        }
+
+        // Looked up on use: a quick-wrap re-saved under the same label is applied with its new prefix and postfix
+        QuickWrap quickWrap = QuickWrapStore.getInstance().get(label);
+        if (null == quickWrap) {
+            return;
+        }
+
+        LastOperations.Wrap wrap = new LastOperations.Wrap(quickWrap.getPrefix(), quickWrap.getPostfix(),
+                Preferences.getMultiLineWrapMode(), Preferences.getQuickWrapMode());
+        LastOperations.setWrap(wrap);
+        WrapAction.wrap(new Wrapper(project, editor), wrap);
+
+        SettingsQuickWraps.recordButtonUse(label);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.actions;
+
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.kstenschke.realigner.models.QuickWrap;
+import com.kstenschke.realigner.models.QuickWrapStore;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Registry of one IDE action per stored quick-wrap, so each can be bound to its own keyboard shortcut.
+ * Kept in sync with the quick-wrap store: actions are registered and unregistered as quick-wraps are added and removed
+ */
+public class QuickWrapActions {
+
+    // Quick-wrap labels are appended to form the action IDs, keymaps refer to them
+    private static final String ACTION_ID_PREFIX = "Realigner.QuickWrap.";
+
+    // Labels of the quick-wraps with a registered action
+    private static final Set<String> registeredLabels = new HashSet<>();
+
+    private static boolean isListening = false;
+
+    /**
+     * Register actions of all stored quick-wraps, keep them in sync with the store from now on
+     */
+    public static synchronized void init() {
+        QuickWrapStore store = QuickWrapStore.getInstance();
+        if (!isListening) {
+            isListening = true;
+            store.addChangeListener(QuickWrapActions::sync);
+        }
+        sync();
+    }
+
+    /**
+     * Register actions of added quick-wraps, unregister those of removed ones
+     */
+    private static synchronized void sync() {
+        ActionManager actionManager = ActionManager.getInstance();
+
+        Set<String> labels = new HashSet<>();
+        for (QuickWrap quickWrap : QuickWrapStore.getInstance().getQuickWraps()) {
+            labels.add(quickWrap.getLabel());
+        }
+
+        registeredLabels.removeIf(label -> {
+            if (labels.contains(label)) {
+                return false;
+            }
+            actionManager.unregisterAction(ACTION_ID_PREFIX + label);
+            return true;
+        });
+
+        for (String label : labels) {
+            if (!registeredLabels.contains(label) && null == actionManager.getAction(ACTION_ID_PREFIX + label)) {
+                actionManager.registerAction(ACTION_ID_PREFIX + label, new QuickWrapAction(label));
+                registeredLabels.add(label);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.actions;
+
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.kstenschke.realigner.LastOperations;
+import com.kstenschke.realigner.models.Wrapper;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Un/wrap the selection, the line containing the caret or each of the selected lines with the prefix, postfix and mode
+ * of the last wrap, w/o options dialog
+ */
+class RepeatWrapAction extends AnAction {
+
+    /**
+     * Disable when no editor open
+     *
+     * @param   event   Action system event
+     */
+    public void update(@NotNull AnActionEvent event) {
+        event.getPresentation().setEnabled(null != event.getData(PlatformDataKeys.EDITOR));
+    }
+
+    /**
+     * @param   event   Action system event
+     */
+    public void actionPerformed(@NotNull final AnActionEvent event) {
+        Project project = event.getData(PlatformDataKeys.PROJECT);
+        Editor editor   = event.getData(PlatformDataKeys.EDITOR);
+        if (null == editor) {
+            return;
+        }
+
+        WrapAction.wrap(new Wrapper(project, editor), LastOperations.getWrap());
+    }
+}
@@ -16,20 +16,21 @@
 package com.kstenschke.realigner.actions;
 
 import com.intellij.openapi.actionSystem.*;
-import com.intellij.openapi.command.CommandProcessor;
-import com.intellij.openapi.command.UndoConfirmationPolicy;
-import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.project.Project;
 import com.kstenschke.realigner.*;
-import com.kstenschke.realigner.listeners.ComponentListenerDialog;
+import com.kstenschke.realigner.core.PatternCache;
+import com.kstenschke.realigner.models.Reflower;
 import com.kstenschke.realigner.models.Splitter;
 import com.kstenschke.realigner.resources.StaticTexts;
 import com.kstenschke.realigner.resources.forms.DialogSplitOptions;
 import com.kstenschke.realigner.utils.UtilsEnvironment;
 import org.jetbrains.annotations.NotNull;
 
+import javax.swing.*;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
 /**
  * Implode / Explode Action
  */
@@ -60,10 +61,6 @@ class SplitAction extends AnAction {
             return;
         }
 
-        final Document document         = editor.getDocument();
-        SelectionModel selectionModel   = editor.getSelectionModel();
-        boolean hasSelection            = selectionModel.hasSelection();
-
         // Setup and display options dialog
         DialogSplitOptions optionsDialog = showOptionsDialog();
 
@@ -72,34 +69,55 @@ class SplitAction extends AnAction {
             return;
         }
 
+        boolean isReflow     = optionsDialog.getIsSelectedReflow();
+        int reflowWidth      = optionsDialog.getReflowWidth(Preferences.getReflowWidth());
+        boolean isOptimalFit = optionsDialog.getIsSelectedOptimalFit();
+
         String delimiter       = optionsDialog.getDelimiter();
+        boolean isRegex        = optionsDialog.getIsSelectedRegex();
         boolean trimWhitespace = optionsDialog.getIsSelectedTrimWhitespace();
         Integer delimiterDisposalMethod = optionsDialog.getDelimiterDisposalMethod();
+        Map<String, Integer> furtherDelimiters = optionsDialog.getFurtherDelimiters();
+
+        Preferences.saveReflowProperties(isReflow, reflowWidth, isOptimalFit);
+        if (!isReflow) {
+            Preferences.saveSplitProperties(delimiter, isRegex, trimWhitespace, delimiterDisposalMethod);
+            Preferences.saveSplitFurtherDelimiters(furtherDelimiters);
+        }
+
+        LastOperations.Split split = new LastOperations.Split(delimiter, isRegex, trimWhitespace, delimiterDisposalMethod,
+                furtherDelimiters, isReflow, reflowWidth, isOptimalFit);
+        LastOperations.setSplit(split);
+
+        split(project, editor, split);
+    }
 
-        Preferences.saveSplitProperties(delimiter, trimWhitespace, delimiterDisposalMethod);
-
-        if (null != delimiter && delimiter.length() > 0) {
-            Splitter splitter = new Splitter(project, editor);
-            if (hasSelection) {
-                CommandProcessor.getInstance().executeCommand(
-                        project,
-                        () -> splitter.splitSelection(document, selectionModel, delimiter, trimWhitespace, delimiterDisposalMethod),
-                        StaticTexts.UNDO_HISTORY_SPLIT,
-                        UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
-            } else {
-                CommandProcessor.getInstance().executeCommand(
-                        project,
-                        () -> splitter.splitLine(document, selectionModel, delimiter, trimWhitespace, delimiterDisposalMethod),
-                        StaticTexts.UNDO_HISTORY_SPLIT,
-                        UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+    /**
+     * Split the selected lines or the line containing the caret, or reflow them, w/o any dialog
+     *
+     * @param   project
+     * @param   editor
+     * @param   split       Parameters of the split
+     */
+    static void split(Project project, Editor editor, LastOperations.Split split) {
+        if (split.isReflow) {
+            new Reflower(project, editor, split.reflowWidth, split.isOptimalFit).reflow();
+            return;
+        }
+
+        String delimiter = split.delimiter;
+        if (split.isRegex && !delimiter.isEmpty()) {
+            try {
+                PatternCache.get(delimiter, 0);
+            } catch (PatternSyntaxException e) {
+                JOptionPane.showMessageDialog(editor.getComponent(), StaticTexts.NOTIFICATION_REGEX_INVALID + e.getDescription());
+                return;
             }
-        } else if (!hasSelection) {
-            Splitter splitter = new Splitter(project, editor);
-            CommandProcessor.getInstance().executeCommand(
-                    project,
-                    () -> splitter.splitLineAtSoftWrap(document),
-                    StaticTexts.UNDO_HISTORY_SPLIT,
-                    UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+        }
+
+        boolean hasDelimiter = delimiter.length() > 0 || (!split.isRegex && !split.furtherDelimiters.isEmpty());
+        if (hasDelimiter || !editor.getSelectionModel().hasSelection()) {
+            new Splitter(project, editor, delimiter, split.isRegex, split.trimWhitespace, split.delimiterDisposalMethod, split.furtherDelimiters).split();
         }
     }
 
@@ -109,14 +127,18 @@ class SplitAction extends AnAction {
      * @return Split options dialog
      */
     private DialogSplitOptions showOptionsDialog() {
-        DialogSplitOptions optionsDialog = new DialogSplitOptions();
+        DialogSplitOptions optionsDialog = OptionsDialogs.getSplitOptions();
 
         // Load and init dialog options from preferences
         optionsDialog.setDelimiter(Preferences.getSplitDelimiter());
+        optionsDialog.setCheckboxRegexSelected(Preferences.getIsSplitDelimiterRegex());
+        optionsDialog.setFurtherDelimiters(Preferences.getSplitFurtherDelimiters());
         optionsDialog.setCheckboxTrimWhitespaceSelected(Preferences.getIsSplitIsSelectedTrimWhitespace());
         optionsDialog.setDelimiterDisposalMethod(Integer.parseInt(Preferences.getSplitWhere()));
+        optionsDialog.setCheckboxReflowSelected(Preferences.getIsSplitReflow());
+        optionsDialog.setReflowWidth(Preferences.getReflowWidth());
+        optionsDialog.setCheckboxOptimalFitSelected(Preferences.getIsReflowOptimalFit());
 
-        optionsDialog.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_SPLIT));
         UtilsEnvironment.setDialogVisible(editor, Preferences.ID_DIALOG_SPLIT, optionsDialog, StaticTexts.MESSAGE_TITLE_SPLIT);
 
         return optionsDialog;
@@ -18,12 +18,11 @@ package com.kstenschke.realigner.actions;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
-import com.intellij.openapi.command.CommandProcessor;
-import com.intellij.openapi.command.UndoConfirmationPolicy;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
+import com.kstenschke.realigner.LastOperations;
+import com.kstenschke.realigner.OptionsDialogs;
 import com.kstenschke.realigner.Preferences;
-import com.kstenschke.realigner.listeners.ComponentListenerDialog;
 import com.kstenschke.realigner.models.Wrapper;
 import com.kstenschke.realigner.resources.StaticTexts;
 import com.kstenschke.realigner.resources.forms.DialogWrapOptions;
@@ -54,7 +53,7 @@ class WrapAction extends AnAction {
             return;
         }
 
-        final Wrapper wrapper = new Wrapper(editor);
+        final Wrapper wrapper = new Wrapper(project, editor);
         final boolean isSelectionMultiLine = wrapper.isSelectionMultiLine;
         DialogWrapOptions optionsDialog = showOptionsDialog(editor, isSelectionMultiLine);
 
@@ -64,22 +63,40 @@ class WrapAction extends AnAction {
 
         Preferences.saveWrapProperties(prefix, postfix);
 
-        int operation = optionsDialog.operation;
-        if (DialogWrapOptions.OPERATION_AUTODETECT == optionsDialog.operation) {
-            operation   = wrapper.isWrapped(prefix, postfix) ? DialogWrapOptions.OPERATION_UNWRAP : DialogWrapOptions.OPERATION_WRAP;
+        switch (optionsDialog.operation) {
+            case DialogWrapOptions.OPERATION_WRAP:
+            case DialogWrapOptions.OPERATION_UNWRAP:
+            case DialogWrapOptions.OPERATION_AUTODETECT:
+                LastOperations.Wrap wrap = new LastOperations.Wrap(prefix, postfix, wrapMode, optionsDialog.operation);
+                LastOperations.setWrap(wrap);
+                wrap(wrapper, wrap);
+                break;
+        }
+
+        optionsDialog.recordFiredButtonUse();
+    }
+
+    /**
+     * Un/wrap current selection or line of caret or each of the selected lines, w/o any dialog
+     *
+     * @param   wrapper
+     * @param   wrap        Parameters of the un/wrap
+     */
+    static void wrap(Wrapper wrapper, LastOperations.Wrap wrap) {
+        int operation = wrap.operation;
+        if (DialogWrapOptions.OPERATION_AUTODETECT == operation) {
+            operation   = wrapper.isWrapped(wrap.prefix, wrap.postfix) ? DialogWrapOptions.OPERATION_UNWRAP : DialogWrapOptions.OPERATION_WRAP;
         }
 
         // Un/wrap
         switch (operation) {
             case DialogWrapOptions.OPERATION_WRAP:
-                CommandProcessor.getInstance().executeCommand(project, () -> wrapper.wrap(prefix, postfix, wrapMode), StaticTexts.UNDO_HISTORY_WRAP, UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+                wrapper.wrap(wrap.prefix, wrap.postfix, wrap.wrapMode);
                 break;
             case DialogWrapOptions.OPERATION_UNWRAP:
-                CommandProcessor.getInstance().executeCommand(project, () -> wrapper.unwrap(prefix, postfix), StaticTexts.UNDO_HISTORY_UNWRAP, UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+                wrapper.unwrap(wrap.prefix, wrap.postfix);
                 break;
         }
-
-        optionsDialog.makeFiredButtonTopMost();
     }
 
     /**
@@ -88,7 +105,7 @@ class WrapAction extends AnAction {
      * @return  Wrap options dialog
      */
     private DialogWrapOptions showOptionsDialog(Editor editor, boolean isMultiLineSelection) {
-        DialogWrapOptions optionsDialog = new DialogWrapOptions(isMultiLineSelection);
+        DialogWrapOptions optionsDialog = OptionsDialogs.getWrapOptions(isMultiLineSelection);
 
         // Load and init from preferences
         optionsDialog.setTextFieldPrefix(Preferences.getWrapPrefix());
@@ -112,7 +129,6 @@ class WrapAction extends AnAction {
                 break;
         }
 
-        optionsDialog.addComponentListener(new ComponentListenerDialog(Preferences.ID_DIALOG_WRAP));
         UtilsEnvironment.setDialogVisible(editor, Preferences.ID_DIALOG_WRAP, optionsDialog, StaticTexts.MESSAGE_TITLE_WRAP);
 
         return optionsDialog;
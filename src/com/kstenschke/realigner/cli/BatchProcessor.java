@@ -0,0 +1,275 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Applies a recipe to all files matching a glob within a directory tree, in parallel on a bounded thread pool.
+ * Results are written atomically: into a temporary file in the same directory, which then replaces the original.
+ * Files that cannot be decoded in the given charset are counted as failed and left untouched.
+ * Large files are split / joined by streaming, w/o being loaded into memory
+ */
+public class BatchProcessor {
+
+    // Minimum file size to be processed by streaming
+    private static final long STREAMING_MIN_SIZE = 64L * 1024 * 1024;
+
+    private final Recipe recipe;
+    private final Charset charset;
+    private final int amountThreads;
+    private final PrintStream out;
+
+    private final AtomicInteger amountChanged = new AtomicInteger();
+    private final AtomicInteger amountFailed = new AtomicInteger();
+    private final AtomicLong amountBytes = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param recipe
+     * @param charset
+     * @param amountThreads Size of the thread pool
+     * @param out           Stream to report per-file timing to
+     */
+    public BatchProcessor(Recipe recipe, Charset charset, int amountThreads, PrintStream out) {
+        this.recipe        = recipe;
+        this.charset       = charset;
+        this.amountThreads = Math.max(1, amountThreads);
+        this.out           = out;
+    }
+
+    /**
+     * @param   directory   Root of the directory tree to be processed
+     * @param   glob        Pattern of files to be processed, relative to the directory, e.g. "**.sql"
+     * @return  int         Amount of files that failed to be processed
+     * @throws  IOException         If the directory tree cannot be walked
+     * @throws  InterruptedException
+     */
+    public int run(Path directory, String glob) throws IOException, InterruptedException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .collect(Collectors.toList());
+        }
+
+        out.println("Realigner: " + recipe + " - " + files.size() + " file(s), " + amountThreads + " thread(s)");
+        long timeStart = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(amountThreads);
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(executor.submit(() -> processFile(file)));
+        }
+        executor.shutdown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                amountFailed.incrementAndGet();
+                out.println("Error: " + e.getCause());
+            }
+        }
+
+        long nanos = System.nanoTime() - timeStart;
+        out.printf("Done: %d file(s) changed, %d failed, %s in %.1f ms (%s)%n",
+                amountChanged.get(), amountFailed.get(), formatBytes(amountBytes.get()), nanos / 1e6, formatThroughput(amountBytes.get(), nanos));
+
+        return amountFailed.get();
+    }
+
+    private void processFile(Path file) {
+        long timeStart = System.nanoTime();
+        try {
+            if (recipe.isStreamable() && Files.size(file) >= STREAMING_MIN_SIZE) {
+                processFileStreaming(file, timeStart);
+                return;
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            String result = recipe.apply(decode(bytes));
+            if (null != result) {
+                writeAtomically(file, result.getBytes(charset));
+                amountChanged.incrementAndGet();
+            }
+            amountBytes.addAndGet(bytes.length);
+
+            long nanos = System.nanoTime() - timeStart;
+            out.printf("%s  %s  %.1f ms  %s%s%n",
+                    file, formatBytes(bytes.length), nanos / 1e6, formatThroughput(bytes.length, nanos), null == result ? "  (unchanged)" : "");
+        } catch (IOException | RuntimeException e) {
+            amountFailed.incrementAndGet();
+            out.println(file + "  failed: " + e);
+        }
+    }
+
+    /**
+     * @param   file
+     * @param   timeStart
+     * @throws  IOException
+     */
+    private void processFileStreaming(Path file, long timeStart) throws IOException {
+        long size = Files.size(file);
+        Path temporaryFile = createTemporaryFile(file);
+        boolean isChanged;
+        try {
+            recipe.applyStreaming(file, temporaryFile, charset);
+            isChanged = !isContentEqual(file, temporaryFile);
+            if (isChanged) {
+                replace(temporaryFile, file);
+                amountChanged.incrementAndGet();
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        amountBytes.addAndGet(size);
+
+        long nanos = System.nanoTime() - timeStart;
+        out.printf("%s  %s  %.1f ms  %s  (streamed)%s%n",
+                file, formatBytes(size), nanos / 1e6, formatThroughput(size, nanos), isChanged ? "" : "  (unchanged)");
+    }
+
+    /**
+     * Decode strictly: malformed or unmappable input fails the file, instead of being replaced and written back corrupted
+     *
+     * @param   bytes
+     * @return  String
+     * @throws  CharacterCodingException    If the bytes are not valid in the charset
+     */
+    private String decode(byte[] bytes) throws CharacterCodingException {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes))
+                .toString();
+    }
+
+    /**
+     * @param   file
+     * @param   otherFile
+     * @return  boolean     Do both files have the same content?
+     * @throws  IOException
+     */
+    private static boolean isContentEqual(Path file, Path otherFile) throws IOException {
+        if (Files.size(file) != Files.size(otherFile)) {
+            return false;
+        }
+
+        byte[] buffer      = new byte[64 * 1024];
+        byte[] otherBuffer = new byte[buffer.length];
+        try (InputStream input = Files.newInputStream(file); InputStream otherInput = Files.newInputStream(otherFile)) {
+            int length;
+            while ((length = readFully(input, buffer)) > 0) {
+                if (readFully(otherInput, otherBuffer) != length) {
+                    return false;
+                }
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] != otherBuffer[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param   input
+     * @param   buffer
+     * @return  int         Amount of bytes read into the buffer: less than its length only at the end of the input
+     * @throws  IOException
+     */
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int length = 0;
+        int amountRead;
+        while (length < buffer.length && -1 != (amountRead = input.read(buffer, length, buffer.length - length))) {
+            length += amountRead;
+        }
+
+        return length;
+    }
+
+    /**
+     * @param   file
+     * @param   bytes
+     * @throws  IOException
+     */
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path temporaryFile = createTemporaryFile(file);
+        try {
+            Files.write(temporaryFile, bytes);
+            replace(temporaryFile, file);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @param   file
+     * @return  Path        New empty file in the directory of the given file, with its permissions (it is to replace it)
+     * @throws  IOException
+     */
+    private static Path createTemporaryFile(Path file) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), "." + file.getFileName(), ".realigner");
+
+        PosixFileAttributeView attributes = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (null != attributes) {
+            try {
+                Files.setPosixFilePermissions(temporaryFile, attributes.readAttributes().permissions());
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporaryFile);
+                throw e;
+            }
+        }
+
+        return temporaryFile;
+    }
+
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes < 1024 ? bytes + " B" : String.format("%.1f KB", bytes / 1024.0);
+    }
+
+    private static String formatThroughput(long bytes, long nanos) {
+        return 0 == nanos ? "-" : String.format("%.1f MB/s", bytes / 1048576.0 / (nanos / 1e9));
+    }
+}
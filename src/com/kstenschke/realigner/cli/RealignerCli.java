@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.cli;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Headless command line entry point: applies a join / split / wrap / unwrap / break recipe to all files matching a glob
+ *
+ * java -cp realigner.jar com.kstenschke.realigner.cli.RealignerCli wrap --prefix "-- " fixtures "**.sql"
+ */
+public class RealignerCli {
+
+    private static final String USAGE = "Usage: RealignerCli <join|split|wrap|unwrap|break> [options] <directory> <glob>\n"
+            + "Options:\n"
+            + "  --glue <string>              join: string to join lines with (default: none)\n"
+            + "  --lines <regex>              join: only join lines matching the regex to their preceding line\n"
+            + "  --delimiter <string>         split: string to split lines at (default: \",\")\n"
+            + "  --delimiter-regex <regex>    split: regular expression to split lines at\n"
+            + "  --disposal <at|before|after> split: where to keep the delimiter (default: after)\n"
+            + "  --trim                       split: trim resulting lines, drop empty ones\n"
+            + "  --prefix <string>            un/wrap: string to add before / remove from start of each line\n"
+            + "  --postfix <string>           un/wrap: string to add after / remove from end of each line\n"
+            + "  --margin <n>                 break: maximum line width in columns (default: 120)\n"
+            + "  --tab-size <n>               break: columns per tab (default: 4)\n"
+            + "  --threads <n>                size of thread pool (default: amount of processors)\n"
+            + "  --charset <name>             file encoding (default: UTF-8)";
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            Recipe recipe = new Recipe(args[0]);
+            int amountThreads = Runtime.getRuntime().availableProcessors();
+            Charset charset = StandardCharsets.UTF_8;
+
+            int index = 1;
+            for (; index < args.length - 2; index++) {
+                String option = args[index];
+                if ("--trim".equals(option)) {
+                    recipe.setTrimWhitespace(true);
+                    continue;
+                }
+                if (index + 1 >= args.length - 2) {
+                    throw new IllegalArgumentException("Missing value of option " + option);
+                }
+                String value = args[++index];
+                switch (option) {
+                    case "--glue":
+                        recipe.setGlue(value);
+                        break;
+                    case "--lines":
+                        recipe.setJoinLinePattern(value);
+                        break;
+                    case "--delimiter":
+                        recipe.setDelimiter(value);
+                        break;
+                    case "--delimiter-regex":
+                        recipe.setDelimiterRegex(value);
+                        break;
+                    case "--disposal":
+                        recipe.setDelimiterDisposal(value);
+                        break;
+                    case "--prefix":
+                        recipe.setPrefix(value);
+                        break;
+                    case "--postfix":
+                        recipe.setPostfix(value);
+                        break;
+                    case "--margin":
+                        recipe.setMargin(Integer.parseInt(value));
+                        break;
+                    case "--tab-size":
+                        recipe.setTabSize(Integer.parseInt(value));
+                        break;
+                    case "--threads":
+                        amountThreads = Integer.parseInt(value);
+                        break;
+                    case "--charset":
+                        charset = Charset.forName(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+
+            Path directory = Paths.get(args[index]);
+            String glob    = args[index + 1];
+
+            int amountFailed = new BatchProcessor(recipe, charset, amountThreads, System.out).run(directory, glob);
+            System.exit(0 == amountFailed ? 0 : 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "\n" + USAGE);
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Error: " + e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.cli;
+
+import com.kstenschke.realigner.core.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Transformation to be applied to all lines of a file: operation plus its delimiter / glue / prefix / postfix
+ */
+public class Recipe {
+
+    public static final String OPERATION_JOIN = "join";
+    public static final String OPERATION_SPLIT = "split";
+    public static final String OPERATION_WRAP = "wrap";
+    public static final String OPERATION_UNWRAP = "unwrap";
+    public static final String OPERATION_BREAK = "break";
+
+    private final String operation;
+
+    private String glue = "";
+    private Pattern joinLinePattern = null;
+    private String delimiter = ",";
+    private Pattern delimiterPattern = null;
+    private boolean trimWhitespace = false;
+    private int delimiterDisposalMethod = SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER;
+    private String prefix = "";
+    private String postfix = "";
+    private int margin = 120;
+    private int tabSize = 4;
+
+    /**
+     * Constructor
+     *
+     * @param operation     join / split / wrap / unwrap / break
+     */
+    public Recipe(String operation) {
+        if (!OPERATION_JOIN.equals(operation) && !OPERATION_SPLIT.equals(operation)
+         && !OPERATION_WRAP.equals(operation) && !OPERATION_UNWRAP.equals(operation)
+         && !OPERATION_BREAK.equals(operation)
+        ) {
+            throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Recipe setGlue(String glue) {
+        this.glue = glue;
+        return this;
+    }
+
+    /**
+     * @param   regex   Pattern of lines to be joined to their preceding line
+     * @return  Recipe
+     * @throws  java.util.regex.PatternSyntaxException
+     */
+    public Recipe setJoinLinePattern(String regex) {
+        this.joinLinePattern = PatternCache.get(regex, 0);
+        return this;
+    }
+
+    public Recipe setDelimiter(String delimiter) {
+        if (null == delimiter || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Split delimiter must not be empty");
+        }
+        this.delimiter        = delimiter;
+        this.delimiterPattern = null;
+        return this;
+    }
+
+    /**
+     * @param   regex   Pattern of delimiters to split at
+     * @return  Recipe
+     * @throws  java.util.regex.PatternSyntaxException
+     */
+    public Recipe setDelimiterRegex(String regex) {
+        if (null == regex || regex.isEmpty()) {
+            throw new IllegalArgumentException("Split delimiter must not be empty");
+        }
+        this.delimiter        = regex;
+        this.delimiterPattern = PatternCache.get(regex, 0);
+        return this;
+    }
+
+    public Recipe setTrimWhitespace(boolean trimWhitespace) {
+        this.trimWhitespace = trimWhitespace;
+        return this;
+    }
+
+    /**
+     * @param   disposal    at / before / after
+     * @return  Recipe
+     */
+    public Recipe setDelimiterDisposal(String disposal) {
+        switch (disposal) {
+            case "at":
+                this.delimiterDisposalMethod = SplitEngine.METHOD_DELIMITER_DISPOSAL_AT;
+                break;
+            case "before":
+                this.delimiterDisposalMethod = SplitEngine.METHOD_DELIMITER_DISPOSAL_BEFORE;
+                break;
+            case "after":
+                this.delimiterDisposalMethod = SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown delimiter disposal: " + disposal);
+        }
+        return this;
+    }
+
+    public Recipe setPrefix(String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    public Recipe setPostfix(String postfix) {
+        this.postfix = postfix;
+        return this;
+    }
+
+    /**
+     * @param   margin  Maximum line width in columns, lines exceeding it are broken
+     * @return  Recipe
+     */
+    public Recipe setMargin(int margin) {
+        if (margin < 1) {
+            throw new IllegalArgumentException("Margin must be positive");
+        }
+        this.margin = margin;
+        return this;
+    }
+
+    /**
+     * @param   tabSize Columns per tab, when measuring line widths
+     * @return  Recipe
+     */
+    public Recipe setTabSize(int tabSize) {
+        if (tabSize < 1) {
+            throw new IllegalArgumentException("Tab size must be positive");
+        }
+        this.tabSize = tabSize;
+        return this;
+    }
+
+    /**
+     * Compute the edits transforming all lines of the given document. A trailing line separator is preserved
+     *
+     * @param   document
+     * @return  EditPlan    Edits to be applied, or null if there is nothing to be done
+     */
+    public EditPlan computeEditPlan(LineDocument document) {
+        return computeEditPlan(document, false);
+    }
+
+    /**
+     * @param   document
+     * @param   isEditPerLine   Leave line separators between lines untouched where possible, instead of replacing all lines at once?
+     * @return  EditPlan        Edits to be applied, or null if there is nothing to be done
+     */
+    private EditPlan computeEditPlan(LineDocument document, boolean isEditPerLine) {
+        int lineNumberEnd = document.getLineCount() - 1;
+        if (lineNumberEnd > 0 && document.getLineStartOffset(lineNumberEnd) == document.getTextLength()) {
+            // Text ends with a line separator: leave the empty last line alone
+            lineNumberEnd--;
+        }
+
+        switch (operation) {
+            case OPERATION_JOIN:
+                if (null == joinLinePattern) {
+                    return JoinEngine.join(document, 0, lineNumberEnd, glue, Cancellation.NONE);
+                }
+                return isEditPerLine
+                        ? JoinEngine.joinMatchingLinesEach(document, 0, lineNumberEnd, glue, joinLinePattern, 0, Cancellation.NONE)
+                        : JoinEngine.joinMatchingLines(document, 0, lineNumberEnd, glue, joinLinePattern, 0, Cancellation.NONE);
+            case OPERATION_SPLIT:
+                if (isEditPerLine) {
+                    DelimiterMatcher delimiterMatcher = null == delimiterPattern
+                            ? new LiteralDelimiterMatcher(delimiter, delimiterDisposalMethod)
+                            : new RegexDelimiterMatcher(delimiterPattern, delimiterDisposalMethod, Cancellation.NONE, 0);
+                    return SplitEngine.splitEach(document, 0, lineNumberEnd, delimiterMatcher, trimWhitespace, Cancellation.NONE);
+                }
+                return null == delimiterPattern
+                        ? SplitEngine.split(document, 0, lineNumberEnd, delimiter, trimWhitespace, delimiterDisposalMethod, Cancellation.NONE)
+                        : SplitEngine.split(document, 0, lineNumberEnd,
+                            new RegexDelimiterMatcher(delimiterPattern, delimiterDisposalMethod, Cancellation.NONE, 0), trimWhitespace, Cancellation.NONE);
+            case OPERATION_WRAP:
+                return WrapEngine.wrapLines(document, 0, lineNumberEnd, prefix, postfix, Cancellation.NONE);
+            case OPERATION_BREAK:
+                return OverlongLineEngine.breakOverlongLines(document, margin, tabSize, Cancellation.NONE);
+            default:
+                return WrapEngine.unwrapLines(document, 0, lineNumberEnd, prefix, postfix, Cancellation.NONE);
+        }
+    }
+
+    /**
+     * @param   text    File content, line separators: \n or \r\n, also mixed
+     * @return  String  Transformed text, or null if unchanged
+     */
+    public String apply(String text) {
+        boolean isCrLf = text.contains("\r\n");
+        InMemoryDocument document = new InMemoryDocument(isCrLf ? text.replace("\r\n", "\n") : text);
+
+        // Line separators are normalized to compute the edits, the original ones are restored where untouched by them
+        EditPlan editPlan = computeEditPlan(document, isCrLf);
+        if (null == editPlan || editPlan.isEmpty()) {
+            return null;
+        }
+        String result = isCrLf ? applyKeepingLineSeparators(editPlan, document.getCharsSequence(), text) : editPlan.applyTo(text);
+
+        return result.equals(text) ? null : result;
+    }
+
+    /**
+     * Apply the edits computed on the text w/ line separators normalized to \n onto the original text: each line keeps
+     * its separator, line separators within replacements take the one of the line the replaced range ends in
+     *
+     * @param   editPlan
+     * @param   normalized  Text with all \r\n replaced by \n
+     * @param   text        Original text
+     * @return  String      Modified original text
+     */
+    private static String applyKeepingLineSeparators(EditPlan editPlan, CharSequence normalized, String text) {
+        StringBuilder result = new StringBuilder(text.length() + Math.max(editPlan.getLengthDelta(), 0) * 2);
+
+        int offset         = 0;
+        int offsetOriginal = 0;
+        for (EditPlan.Edit edit : editPlan.getEdits()) {
+            int offsetOriginalStart = offsetOriginal;
+            if (edit.offsetStart > offset) {
+                offsetOriginal = getOriginalOffset(normalized, text, offset, offsetOriginal, edit.offsetStart);
+                offset         = edit.offsetStart;
+            }
+            result.append(text, offsetOriginalStart, offsetOriginal);
+
+            if (edit.offsetEnd > offset) {
+                offsetOriginal = getOriginalOffset(normalized, text, offset, offsetOriginal, edit.offsetEnd);
+                offset         = edit.offsetEnd;
+            }
+            String lineSeparator = getLineSeparator(text, offsetOriginal);
+            result.append(1 == lineSeparator.length() ? edit.text : edit.text.replace("\n", lineSeparator));
+        }
+        result.append(text, offsetOriginal, text.length());
+
+        return result.toString();
+    }
+
+    /**
+     * @param   normalized
+     * @param   text
+     * @param   offset          Offset within the normalized text
+     * @param   offsetOriginal  Corresponding offset within the original text
+     * @param   offsetTarget    Offset within the normalized text, not before the given one
+     * @return  int             Offset within the original text corresponding to the target offset
+     */
+    private static int getOriginalOffset(CharSequence normalized, String text, int offset, int offsetOriginal, int offsetTarget) {
+        for (; offset < offsetTarget; offset++) {
+            // \n of the normalized text corresponds to \r\n or \n
+            offsetOriginal += '\n' == normalized.charAt(offset) && '\r' == text.charAt(offsetOriginal) ? 2 : 1;
+        }
+
+        return offsetOriginal;
+    }
+
+    /**
+     * @param   text
+     * @param   offset
+     * @return  String      Separator ending the line containing the given offset, or the preceding one if it is the last line
+     */
+    private static String getLineSeparator(String text, int offset) {
+        int offsetLineFeed = text.indexOf('\n', offset);
+        if (-1 == offsetLineFeed) {
+            offsetLineFeed = text.lastIndexOf('\n', offset - 1);
+        }
+
+        return offsetLineFeed > 0 && '\r' == text.charAt(offsetLineFeed - 1) ? "\r\n" : "\n";
+    }
+
+    /**
+     * @return  boolean     Can the recipe be applied by streaming, w/o loading the whole file? (join and split, w/o regex)
+     */
+    public boolean isStreamable() {
+        return (OPERATION_JOIN.equals(operation) && null == joinLinePattern)
+            || (OPERATION_SPLIT.equals(operation) && null == delimiterPattern);
+    }
+
+    /**
+     * Apply the recipe by streaming the input through memory-mapped windows into the output, with constant heap usage
+     *
+     * @param   input
+     * @param   output      File to be (over)written
+     * @param   charset
+     * @throws  IOException
+     */
+    public void applyStreaming(Path input, Path output, Charset charset) throws IOException {
+        if (!isStreamable()) {
+            throw new UnsupportedOperationException("Recipe cannot be streamed: " + this);
+        }
+        if (OPERATION_JOIN.equals(operation)) {
+            StreamingEngine.join(input, output, charset, glue, Cancellation.NONE);
+        } else {
+            StreamingEngine.split(input, output, charset, delimiter, trimWhitespace, delimiterDisposalMethod, Cancellation.NONE);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (operation) {
+            case OPERATION_JOIN:
+                return "join, glue: \"" + glue + "\"" + (null == joinLinePattern ? "" : ", lines matching: /" + joinLinePattern + "/");
+            case OPERATION_SPLIT:
+                return "split, delimiter: " + (null == delimiterPattern ? "\"" + delimiter + "\"" : "/" + delimiter + "/");
+            case OPERATION_BREAK:
+                return "break lines exceeding " + margin + " columns";
+            default:
+                return operation + ", prefix: \"" + prefix + "\", postfix: \"" + postfix + "\"";
+        }
+    }
+}
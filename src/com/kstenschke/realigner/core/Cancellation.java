@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Hook for long running loops of the text engines, to be interrupted on cancel
+ */
+@FunctionalInterface
+public interface Cancellation {
+
+    // Never cancels
+    Cancellation NONE = () -> {
+    };
+
+    /**
+     * Throw an unchecked exception if the operation has been canceled
+     */
+    void checkCanceled();
+}
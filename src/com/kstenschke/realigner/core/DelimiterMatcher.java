@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Finds delimiters to split lines at
+ */
+public interface DelimiterMatcher {
+
+    /**
+     * @param   text
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @return  int         Start offset of the next (non-empty) delimiter within the given range, -1 if there is none
+     */
+    int find(CharSequence text, int offsetStart, int offsetEnd);
+
+    /**
+     * @return  int         End offset of the delimiter last found
+     */
+    int getMatchEnd();
+
+    /**
+     * @return  int         Before/At/After, disposal method of the delimiter last found
+     */
+    int getDisposalMethod();
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Width of text in columns of a monospaced display, independent from the IDE: tabs advance to the next tab stop,
+ * wide and full-width (East Asian) characters occupy two columns
+ */
+public class DisplayWidth {
+
+    // Characters below are all narrow
+    private static final int MIN_WIDE_CODE_POINT = 0x1100;
+
+    // Ranges of wide and full-width code points (East Asian Width "W" and "F"), pairs of first and last code point, sorted
+    private static final int[] WIDE_RANGES = {
+            0x1100, 0x115F, 0x231A, 0x231B, 0x2329, 0x232A, 0x23E9, 0x23EC, 0x23F0, 0x23F0, 0x23F3, 0x23F3,
+            0x25FD, 0x25FE, 0x2614, 0x2615, 0x2648, 0x2653, 0x267F, 0x267F, 0x2693, 0x2693, 0x26A1, 0x26A1,
+            0x26AA, 0x26AB, 0x26BD, 0x26BE, 0x26C4, 0x26C5, 0x26CE, 0x26CE, 0x26D4, 0x26D4, 0x26EA, 0x26EA,
+            0x26F2, 0x26F3, 0x26F5, 0x26F5, 0x26FA, 0x26FA, 0x26FD, 0x26FD, 0x2705, 0x2705, 0x270A, 0x270B,
+            0x2728, 0x2728, 0x274C, 0x274C, 0x274E, 0x274E, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797,
+            0x27B0, 0x27B0, 0x27BF, 0x27BF, 0x2B1B, 0x2B1C, 0x2B50, 0x2B50, 0x2B55, 0x2B55,
+            // CJK radicals, punctuation, kana, CJK unified ideographs, Yi
+            0x2E80, 0x303E, 0x3041, 0x33FF, 0x3400, 0x4DBF, 0x4E00, 0xA4CF,
+            // Hangul
+            0xA960, 0xA97F, 0xAC00, 0xD7A3,
+            // CJK compatibility ideographs, vertical forms, compatibility forms, full-width forms
+            0xF900, 0xFAFF, 0xFE10, 0xFE19, 0xFE30, 0xFE6F, 0xFF00, 0xFF60, 0xFFE0, 0xFFE6,
+            // Tangut, kana supplement
+            0x16FE0, 0x16FE4, 0x17000, 0x18AFF, 0x1B000, 0x1B2FF,
+            // Emoji and pictographs
+            0x1F004, 0x1F004, 0x1F0CF, 0x1F0CF, 0x1F18E, 0x1F18E, 0x1F191, 0x1F19A, 0x1F200, 0x1F202,
+            0x1F210, 0x1F23B, 0x1F240, 0x1F248, 0x1F250, 0x1F251, 0x1F260, 0x1F265, 0x1F300, 0x1F320,
+            0x1F32D, 0x1F335, 0x1F337, 0x1F37C, 0x1F37E, 0x1F393, 0x1F3A0, 0x1F3CA, 0x1F3CF, 0x1F3D3,
+            0x1F3E0, 0x1F3F0, 0x1F3F4, 0x1F3F4, 0x1F3F8, 0x1F43E, 0x1F440, 0x1F440, 0x1F442, 0x1F4FC,
+            0x1F4FF, 0x1F53D, 0x1F54B, 0x1F54E, 0x1F550, 0x1F567, 0x1F57A, 0x1F57A, 0x1F595, 0x1F596,
+            0x1F5A4, 0x1F5A4, 0x1F5FB, 0x1F64F, 0x1F680, 0x1F6C5, 0x1F6CC, 0x1F6CC, 0x1F6D0, 0x1F6D2,
+            0x1F6EB, 0x1F6EC, 0x1F6F4, 0x1F6F8, 0x1F910, 0x1F93E, 0x1F940, 0x1F94C, 0x1F950, 0x1F96B,
+            0x1F980, 0x1F997, 0x1F9C0, 0x1F9C0, 0x1F9D0, 0x1F9E6,
+            // CJK unified ideographs extensions, planes 2 and 3
+            0x20000, 0x2FFFD, 0x30000, 0x3FFFD
+    };
+
+    /**
+     * Measure in a single pass w/o allocations
+     *
+     * @param   text
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @param   tabSize         Columns per tab, 0: tabs occupy one column
+     * @return  int             Amount of columns the given range of text occupies, starting at column 0
+     */
+    public static int getColumns(CharSequence text, int offsetStart, int offsetEnd, int tabSize) {
+        return getColumns(text, offsetStart, offsetEnd, tabSize, 0);
+    }
+
+    /**
+     * @param   text
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @param   tabSize         Columns per tab, 0: tabs occupy one column
+     * @param   columnStart     Column the given range of text starts at, tab stops are relative to column 0
+     * @return  int             Column after the given range of text
+     */
+    public static int getColumns(CharSequence text, int offsetStart, int offsetEnd, int tabSize, int columnStart) {
+        int columns = columnStart;
+        for (int offset = offsetStart; offset < offsetEnd; offset++) {
+            char c = text.charAt(offset);
+            if (c < MIN_WIDE_CODE_POINT) {
+                columns = '\t' == c && tabSize > 0
+                        ? (columns / tabSize + 1) * tabSize
+                        : columns + 1;
+            } else if (Character.isHighSurrogate(c) && offset + 1 < offsetEnd && Character.isLowSurrogate(text.charAt(offset + 1))) {
+                columns += isWide(Character.toCodePoint(c, text.charAt(++offset))) ? 2 : 1;
+            } else {
+                columns += isWide(c) ? 2 : 1;
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * @param   codePoint
+     * @return  boolean     Does the given character occupy two columns?
+     */
+    public static boolean isWide(int codePoint) {
+        if (codePoint < MIN_WIDE_CODE_POINT) {
+            return false;
+        }
+
+        // Binary search for the last range starting at or before the code point
+        int low  = 0;
+        int high = WIDE_RANGES.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (WIDE_RANGES[middle * 2] > codePoint) {
+                high = middle - 1;
+            } else if (WIDE_RANGES[middle * 2 + 1] < codePoint) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
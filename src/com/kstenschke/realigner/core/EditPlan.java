@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collection of text edits (offsets relate to the unmodified text), to be applied together
+ */
+public class EditPlan {
+
+    private final List<Edit> edits = new ArrayList<>();
+    private boolean isSorted = true;
+
+    /**
+     * Single replacement of the text between two offsets
+     */
+    public static class Edit {
+        public final int offsetStart;
+        public final int offsetEnd;
+        public final String text;
+
+        Edit(int offsetStart, int offsetEnd, String text) {
+            this.offsetStart = offsetStart;
+            this.offsetEnd   = offsetEnd;
+            this.text        = text;
+        }
+    }
+
+    /**
+     * @param   offset
+     * @param   text    Text to be inserted at given offset
+     */
+    public void insert(int offset, String text) {
+        if (!text.isEmpty()) {
+            add(new Edit(offset, offset, text));
+        }
+    }
+
+    /**
+     * @param   offsetStart
+     * @param   offsetEnd
+     */
+    public void delete(int offsetStart, int offsetEnd) {
+        if (offsetEnd > offsetStart) {
+            add(new Edit(offsetStart, offsetEnd, ""));
+        }
+    }
+
+    /**
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @param   text    Text to replace the given range with
+     */
+    public void replace(int offsetStart, int offsetEnd, String text) {
+        add(new Edit(offsetStart, offsetEnd, text));
+    }
+
+    private void add(Edit edit) {
+        if (!edits.isEmpty() && edit.offsetStart < edits.get(edits.size() - 1).offsetStart) {
+            isSorted = false;
+        }
+        edits.add(edit);
+    }
+
+    /**
+     * @return  boolean     Does the plan contain no edits at all?
+     */
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * @return  List<Edit>  All edits, ordered by offset. Edits at the same offset keep the order they were added in
+     */
+    public List<Edit> getEdits() {
+        if (!isSorted) {
+            // List.sort() is stable
+            edits.sort(Comparator.comparingInt(edit -> edit.offsetStart));
+            isSorted = true;
+        }
+
+        return edits;
+    }
+
+    /**
+     * Map an offset of the unmodified document to the resp. offset after the edits have been applied
+     *
+     * @param   offset
+     * @param   isRangeEnd  Shift the offset behind (instead of before) text inserted exactly at it?
+     * @return  int
+     */
+    public int getShiftedOffset(int offset, boolean isRangeEnd) {
+        int shift = 0;
+        for (Edit edit : getEdits()) {
+            if (edit.offsetStart > offset || (edit.offsetStart == offset && !isRangeEnd)) {
+                break;
+            }
+            if (edit.offsetEnd <= offset) {
+                shift += edit.text.length() - (edit.offsetEnd - edit.offsetStart);
+            } else {
+                // Offset lies within replaced text: move it to the start or end of the replacement
+                return edit.offsetStart + shift + (isRangeEnd ? edit.text.length() : 0);
+            }
+        }
+
+        return offset + shift;
+    }
+
+    /**
+     * @return  int     Difference in length of the text after and before applying the edits
+     */
+    public int getLengthDelta() {
+        int delta = 0;
+        for (Edit edit : edits) {
+            delta += edit.text.length() - (edit.offsetEnd - edit.offsetStart);
+        }
+
+        return delta;
+    }
+
+    /**
+     * Apply all edits to the given text in one pass
+     *
+     * @param   text    Unmodified text
+     * @return  String  Modified text
+     */
+    public String applyTo(CharSequence text) {
+        StringBuilder result = new StringBuilder(text.length() + Math.max(getLengthDelta(), 0));
+
+        int offset = 0;
+        for (Edit edit : getEdits()) {
+            result.append(text, offset, edit.offsetStart).append(edit.text);
+            offset = Math.max(offset, edit.offsetEnd);
+        }
+        result.append(text, offset, text.length());
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Ranking of items by frequency and recency of their use: each use adds 1 to an item's score, scores decay
+ * exponentially with the time since the last use. Ranks are comparable across items without decaying all scores
+ * to a common point in time, so re-ranking an item on use does not touch any other item
+ */
+public class Frecency {
+
+    // Time after which a score has decayed to half of its value
+    public static final long HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * @param   score           Score as of the last use
+     * @param   lastUsedMillis
+     * @param   nowMillis
+     * @return  double          Score decayed to the given point in time
+     */
+    public static double getDecayedScore(double score, long lastUsedMillis, long nowMillis) {
+        if (score <= 0) {
+            return 0;
+        }
+
+        return score * Math.pow(0.5, (double) Math.max(0, nowMillis - lastUsedMillis) / HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * @param   score           Score as of the last use
+     * @param   lastUsedMillis
+     * @param   nowMillis       Time of the new use
+     * @return  double          Score as of the new use
+     */
+    public static double addUse(double score, long lastUsedMillis, long nowMillis) {
+        return getDecayedScore(score, lastUsedMillis, nowMillis) + 1;
+    }
+
+    /**
+     * Rank = log2(score decayed to a common point in time) + constant: the decay of all scores from their last use
+     * to that point is expressed by the last use time, so ranks stay valid as time passes
+     *
+     * @param   score           Score as of the last use
+     * @param   lastUsedMillis
+     * @return  double          Rank, higher: more frequently and recently used. Never used: negative infinity
+     */
+    public static double getRank(double score, long lastUsedMillis) {
+        return score <= 0
+                ? Double.NEGATIVE_INFINITY
+                : Math.log(score) / Math.log(2) + (double) lastUsedMillis / HALF_LIFE_MILLIS;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.Arrays;
+
+/**
+ * Lightweight mutable document: text plus an index of line start offsets
+ */
+public class InMemoryDocument implements LineDocument {
+
+    private String text;
+    private int[] lineStartOffsets;
+    private int lineCount;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     */
+    public InMemoryDocument(CharSequence text) {
+        setText(text);
+    }
+
+    /**
+     * Replace the whole text, rebuild line index
+     *
+     * @param text
+     */
+    public void setText(CharSequence text) {
+        this.text = text.toString();
+
+        int[] offsets = new int[16];
+        int amountLines = 1;
+        for (int offset = this.text.indexOf('\n'); -1 != offset; offset = this.text.indexOf('\n', offset + 1)) {
+            if (amountLines == offsets.length) {
+                offsets = Arrays.copyOf(offsets, amountLines * 2);
+            }
+            offsets[amountLines++] = offset + 1;
+        }
+
+        this.lineStartOffsets = offsets;
+        this.lineCount        = amountLines;
+    }
+
+    /**
+     * Apply all edits of the given plan at once
+     *
+     * @param editPlan
+     */
+    public void apply(EditPlan editPlan) {
+        if (!editPlan.isEmpty()) {
+            setText(editPlan.applyTo(text));
+        }
+    }
+
+    @Override
+    public String getCharsSequence() {
+        return text;
+    }
+
+    @Override
+    public int getTextLength() {
+        return text.length();
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public int getLineNumber(int offset) {
+        int index = Arrays.binarySearch(lineStartOffsets, 0, lineCount, offset);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    public int getLineStartOffset(int lineNumber) {
+        return lineStartOffsets[lineNumber];
+    }
+
+    @Override
+    public int getLineEndOffset(int lineNumber) {
+        return lineNumber + 1 < lineCount ? lineStartOffsets[lineNumber + 1] - 1 : text.length();
+    }
+}
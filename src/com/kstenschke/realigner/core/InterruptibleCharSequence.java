@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Char sequence to run regular expressions on: checks for cancellation and timeout while being read,
+ * so catastrophic backtracking cannot block forever
+ */
+public class InterruptibleCharSequence implements CharSequence {
+
+    // Amount of char reads between checks
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final CharSequence text;
+    private final Cancellation cancellation;
+    private final long timeoutNanos;
+
+    private long deadlineNanos;
+
+    private int amountReads = 0;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     * @param cancellation
+     * @param timeoutMillis     Maximum duration of reading from now or from the last resetDeadline(), 0: unbounded
+     */
+    public InterruptibleCharSequence(CharSequence text, Cancellation cancellation, long timeoutMillis) {
+        this.text          = text;
+        this.cancellation  = cancellation;
+        this.timeoutNanos  = timeoutMillis > 0 ? timeoutMillis * 1_000_000 : 0;
+        resetDeadline();
+    }
+
+    /**
+     * Constructor of a sub sequence, sharing the deadline
+     *
+     * @param parent
+     * @param start
+     * @param end
+     */
+    private InterruptibleCharSequence(InterruptibleCharSequence parent, int start, int end) {
+        this.text          = parent.text.subSequence(start, end);
+        this.cancellation  = parent.cancellation;
+        this.timeoutNanos  = parent.timeoutNanos;
+        this.deadlineNanos = parent.deadlineNanos;
+    }
+
+    /**
+     * Restart the timeout from now, to be called before each find/match: the timeout limits a single search, not the
+     * whole operation
+     */
+    public void resetDeadline() {
+        deadlineNanos = 0 == timeoutNanos ? 0 : System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * @throws  MatchTimeoutException   When the timeout is exceeded
+     */
+    @Override
+    public char charAt(int index) {
+        if (++amountReads == CHECK_INTERVAL) {
+            amountReads = 0;
+            cancellation.checkCanceled();
+            if (0 != deadlineNanos && System.nanoTime() - deadlineNanos > 0) {
+                throw new MatchTimeoutException();
+            }
+        }
+
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new InterruptibleCharSequence(this, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
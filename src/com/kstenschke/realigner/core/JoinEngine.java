@@ -0,0 +1,191 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Joining of lines, independent from the IDE
+ */
+public class JoinEngine {
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   glue
+     * @param   cancellation
+     * @return  EditPlan        Replacement of the given lines by themselves joined, or null if less than two lines given
+     */
+    public static EditPlan join(LineDocument document, int lineNumberStart, int lineNumberEnd, String glue, Cancellation cancellation) {
+        if (lineNumberEnd <= lineNumberStart) {
+            return null;
+        }
+        int offsetStart = document.getLineStartOffset(lineNumberStart);
+        int offsetEnd   = document.getLineEndOffset(lineNumberEnd);
+
+        EditPlan editPlan = new EditPlan();
+        editPlan.replace(offsetStart, offsetEnd,
+                getJoinedLines(document.getCharsSequence(), offsetStart, offsetEnd, lineNumberEnd - lineNumberStart, glue, cancellation));
+
+        return editPlan;
+    }
+
+    /**
+     * Join lines within given offset range in one pass: the first line is kept as is,
+     * all following lines are trimmed, newlines are replaced by the glue
+     *
+     * @param   text            Document text
+     * @param   offsetStart     Start offset of first line
+     * @param   offsetEnd       End offset of last line (excluding its line separator)
+     * @param   amountGlues     Amount of line breaks within the range, used to pre-size the buffer
+     * @param   glue            Glue string
+     * @param   cancellation
+     * @return  String          Joined lines
+     */
+    public static String getJoinedLines(CharSequence text, int offsetStart, int offsetEnd, int amountGlues, String glue, Cancellation cancellation) {
+        StringBuilder joined = new StringBuilder(offsetEnd - offsetStart + Math.max(amountGlues, 0) * glue.length());
+
+        LineView line = new LineView(text, offsetStart, offsetStart);
+        int offsetLineStart = offsetStart;
+        boolean isFirstLine = true;
+        while (true) {
+            cancellation.checkCanceled();
+
+            int offsetLineEnd = offsetLineStart;
+            while (offsetLineEnd < offsetEnd && text.charAt(offsetLineEnd) != '\n') {
+                offsetLineEnd++;
+            }
+
+            line.setRange(offsetLineStart, offsetLineEnd);
+            if (!isFirstLine) {
+                line.trim();
+            }
+            line.appendTo(joined);
+
+            if (offsetLineEnd >= offsetEnd) {
+                return joined.toString();
+            }
+            joined.append(glue);
+
+            offsetLineStart = offsetLineEnd + 1;
+            isFirstLine     = false;
+        }
+    }
+
+    /**
+     * Join each line matching the given pattern (e.g. continuation lines) to the line before it. Joined lines are trimmed,
+     * other lines are kept as they are
+     *
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   glue
+     * @param   linePattern     Pattern to be found within lines to be joined to their preceding line
+     * @param   timeoutMillis   Maximum duration of matching within a single line, 0: unbounded
+     * @param   cancellation
+     * @return  EditPlan        Replacement of the given lines, or null if no line after the first one matches
+     * @throws  MatchTimeoutException   When the timeout is exceeded
+     */
+    public static EditPlan joinMatchingLines(LineDocument document, int lineNumberStart, int lineNumberEnd, String glue, Pattern linePattern, long timeoutMillis, Cancellation cancellation) {
+        return joinMatchingLines(document, lineNumberStart, lineNumberEnd, glue, linePattern, timeoutMillis, false, cancellation);
+    }
+
+    /**
+     * Same as joinMatchingLines(), but as one edit per joined line: the line separators of lines not being joined
+     * remain untouched (e.g. to preserve their kind)
+     *
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   glue
+     * @param   linePattern     Pattern to be found within lines to be joined to their preceding line
+     * @param   timeoutMillis   Maximum duration of matching within a single line, 0: unbounded
+     * @param   cancellation
+     * @return  EditPlan        Replacements of the line separators before and the content of all matching lines, or null if none matches
+     * @throws  MatchTimeoutException   When the timeout is exceeded
+     */
+    public static EditPlan joinMatchingLinesEach(LineDocument document, int lineNumberStart, int lineNumberEnd, String glue, Pattern linePattern, long timeoutMillis, Cancellation cancellation) {
+        return joinMatchingLines(document, lineNumberStart, lineNumberEnd, glue, linePattern, timeoutMillis, true, cancellation);
+    }
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   glue
+     * @param   linePattern
+     * @param   timeoutMillis
+     * @param   isEditPerLine   One edit per joined line, instead of a single replacement of all lines?
+     * @param   cancellation
+     * @return  EditPlan
+     */
+    private static EditPlan joinMatchingLines(LineDocument document, int lineNumberStart, int lineNumberEnd, String glue, Pattern linePattern, long timeoutMillis, boolean isEditPerLine, Cancellation cancellation) {
+        if (lineNumberEnd <= lineNumberStart) {
+            return null;
+        }
+        LineIndex lineIndex = LineIndex.of(document, lineNumberStart, lineNumberEnd, cancellation);
+        CharSequence text   = lineIndex.getCharsSequence();
+        int offsetStart     = lineIndex.getLineStartOffset(lineNumberStart);
+        int offsetEnd       = lineIndex.getLineEndOffset(lineNumberEnd);
+
+        InterruptibleCharSequence interruptibleText = new InterruptibleCharSequence(text, cancellation, timeoutMillis);
+        Matcher matcher = linePattern.matcher(interruptibleText);
+        matcher.useTransparentBounds(true).useAnchoringBounds(true);
+
+        EditPlan editPlan    = new EditPlan();
+        StringBuilder joined = new StringBuilder(isEditPerLine ? 256 : offsetEnd - offsetStart);
+        if (!isEditPerLine) {
+            joined.append(text, offsetStart, lineIndex.getLineEndOffset(lineNumberStart));
+        }
+        boolean isJoined = false;
+
+        LineView line = new LineView(text, offsetStart, offsetStart);
+        for (int lineNumber = lineNumberStart + 1; lineNumber <= lineNumberEnd; lineNumber++) {
+            cancellation.checkCanceled();
+
+            line.setLine(lineIndex, lineNumber);
+            interruptibleText.resetDeadline();
+            if (!matcher.region(line.getOffsetStart(), line.getOffsetEnd()).find()) {
+                if (!isEditPerLine) {
+                    line.appendTo(joined.append('\n'));
+                }
+                continue;
+            }
+
+            if (isEditPerLine) {
+                // Replace the preceding line separator and the line
+                int offsetLineEnd = line.getOffsetEnd();
+                joined.setLength(0);
+                line.trim().appendTo(joined.append(glue));
+                editPlan.replace(lineIndex.getLineEndOffset(lineNumber - 1), offsetLineEnd, joined.toString());
+            } else {
+                line.trim().appendTo(joined.append(glue));
+            }
+            isJoined = true;
+        }
+        if (!isJoined) {
+            return null;
+        }
+
+        if (!isEditPerLine) {
+            editPlan.replace(offsetStart, offsetEnd, joined.toString());
+        }
+
+        return editPlan;
+    }
+}
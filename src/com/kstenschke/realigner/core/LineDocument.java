@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+/**
+ * Read access to a text and its lines, as needed by the text engines.
+ * Line numbers are zero-based, line end offsets exclude the line separator ("\n")
+ */
+public interface LineDocument {
+
+    CharSequence getCharsSequence();
+
+    int getTextLength();
+
+    int getLineCount();
+
+    int getLineNumber(int offset);
+
+    int getLineStartOffset(int lineNumber);
+
+    int getLineEndOffset(int lineNumber);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.Arrays;
+
+/**
+ * Primitive index of the start offsets of a range of lines, built in one pass over the text of a document.
+ * Edit planners look up lines of the range via array access, instead of querying the document again per line.
+ * Only the indexed lines may be looked up, line numbers stay those of the document
+ */
+public class LineIndex implements LineDocument {
+
+    private final CharSequence text;
+    private final int lineCount;
+    private final int lineNumberStart;
+
+    // Start offset of each indexed line, followed by the end offset of the last line + 1 (start of a virtual next line)
+    private final int[] lineStartOffsets;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     * @param lineCount         Amount of lines of the whole document
+     * @param lineNumberStart
+     * @param lineStartOffsets
+     */
+    private LineIndex(CharSequence text, int lineCount, int lineNumberStart, int[] lineStartOffsets) {
+        this.text             = text;
+        this.lineCount        = lineCount;
+        this.lineNumberStart  = lineNumberStart;
+        this.lineStartOffsets = lineStartOffsets;
+    }
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   cancellation
+     * @return  LineIndex           Index of the given lines of the document
+     */
+    public static LineIndex of(LineDocument document, int lineNumberStart, int lineNumberEnd, Cancellation cancellation) {
+        if (document instanceof LineIndex && ((LineIndex) document).isIndexed(lineNumberStart) && ((LineIndex) document).isIndexed(lineNumberEnd)) {
+            return (LineIndex) document;
+        }
+
+        CharSequence text = document.getCharsSequence();
+        int offsetEnd     = document.getLineEndOffset(lineNumberEnd);
+
+        int[] lineStartOffsets = new int[lineNumberEnd - lineNumberStart + 2];
+        lineStartOffsets[0] = document.getLineStartOffset(lineNumberStart);
+
+        int index = 1;
+        for (int offset = lineStartOffsets[0]; offset < offsetEnd; offset++) {
+            if ('\n' == text.charAt(offset)) {
+                if (0 == (index & 0xFFFF)) {
+                    cancellation.checkCanceled();
+                }
+                lineStartOffsets[index++] = offset + 1;
+            }
+        }
+        lineStartOffsets[index] = offsetEnd + 1;
+
+        return new LineIndex(text, document.getLineCount(), lineNumberStart, lineStartOffsets);
+    }
+
+    /**
+     * @return  int     Number of the last indexed line
+     */
+    public int getLineNumberEnd() {
+        return lineNumberStart + lineStartOffsets.length - 2;
+    }
+
+    /**
+     * @param   lineNumber
+     * @return  boolean     Is the given line covered by the index?
+     */
+    public boolean isIndexed(int lineNumber) {
+        return lineNumber >= lineNumberStart && lineNumber <= getLineNumberEnd();
+    }
+
+    @Override
+    public CharSequence getCharsSequence() {
+        return text;
+    }
+
+    @Override
+    public int getTextLength() {
+        return text.length();
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param   offset  Offset within the indexed lines
+     * @return  int
+     */
+    @Override
+    public int getLineNumber(int offset) {
+        if (offset < lineStartOffsets[0] || offset >= lineStartOffsets[lineStartOffsets.length - 1]) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is not within the indexed lines");
+        }
+        int index = Arrays.binarySearch(lineStartOffsets, 0, lineStartOffsets.length - 1, offset);
+
+        return lineNumberStart + (index >= 0 ? index : -index - 2);
+    }
+
+    @Override
+    public int getLineStartOffset(int lineNumber) {
+        return lineStartOffsets[getIndex(lineNumber)];
+    }
+
+    @Override
+    public int getLineEndOffset(int lineNumber) {
+        return lineStartOffsets[getIndex(lineNumber) + 1] - 1;
+    }
+
+    /**
+     * @param   lineNumber
+     * @return  int         Index of the given line within the array of start offsets
+     */
+    private int getIndex(int lineNumber) {
+        if (!isIndexed(lineNumber)) {
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " is not within the indexed lines " + lineNumberStart + ".." + getLineNumberEnd());
+        }
+
+        return lineNumber - lineNumberStart;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import com.kstenschke.realigner.utils.UtilsTextual;
+
+/**
+ * Zero-copy view of a range (typically a line) of a text, e.g. of the immutable char sequence of a document.
+ * Trimming narrows the bounds in place. A view can be re-targeted to another range, so loops over lines can reuse
+ * one instance instead of allocating a string per line
+ */
+public class LineView implements CharSequence {
+
+    private final CharSequence text;
+    private int offsetStart;
+    private int offsetEnd;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     * @param offsetStart
+     * @param offsetEnd
+     */
+    public LineView(CharSequence text, int offsetStart, int offsetEnd) {
+        this.text = text;
+        setRange(offsetStart, offsetEnd);
+    }
+
+    /**
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @return  LineView    This view, re-targeted to the given range of the text
+     */
+    public LineView setRange(int offsetStart, int offsetEnd) {
+        if (offsetStart < 0 || offsetEnd > text.length() || offsetStart > offsetEnd) {
+            throw new IndexOutOfBoundsException("Range " + offsetStart + ".." + offsetEnd + " of text with length " + text.length());
+        }
+        this.offsetStart = offsetStart;
+        this.offsetEnd   = offsetEnd;
+
+        return this;
+    }
+
+    /**
+     * @param   document    Document of the viewed text
+     * @param   lineNumber
+     * @return  LineView    This view, re-targeted to the given line
+     */
+    public LineView setLine(LineDocument document, int lineNumber) {
+        return setRange(document.getLineStartOffset(lineNumber), document.getLineEndOffset(lineNumber));
+    }
+
+    /**
+     * @return  int     Offset of the view's start within the text
+     */
+    public int getOffsetStart() {
+        return offsetStart;
+    }
+
+    /**
+     * @return  int     Offset of the view's end within the text
+     */
+    public int getOffsetEnd() {
+        return offsetEnd;
+    }
+
+    /**
+     * Narrow the bounds to exclude leading and trailing whitespace (like String.trim())
+     *
+     * @return  LineView    This view
+     */
+    public LineView trim() {
+        while (offsetStart < offsetEnd && text.charAt(offsetStart) <= ' ') {
+            offsetStart++;
+        }
+        while (offsetEnd > offsetStart && text.charAt(offsetEnd - 1) <= ' ') {
+            offsetEnd--;
+        }
+
+        return this;
+    }
+
+    /**
+     * @return  int     Amount of leading whitespace characters
+     */
+    public int getIndentLength() {
+        int offset = offsetStart;
+        while (offset < offsetEnd && text.charAt(offset) <= ' ') {
+            offset++;
+        }
+
+        return offset - offsetStart;
+    }
+
+    /**
+     * @return  boolean     Does the view contain whitespace only?
+     */
+    public boolean isBlank() {
+        return getIndentLength() == length();
+    }
+
+    public boolean startsWith(String prefix) {
+        return prefix.length() <= length() && UtilsTextual.startsWith(text, offsetStart, prefix);
+    }
+
+    public boolean endsWith(String postfix) {
+        return postfix.length() <= length() && UtilsTextual.startsWith(text, offsetEnd - postfix.length(), postfix);
+    }
+
+    /**
+     * @param   c
+     * @return  int     Index of the first occurrence of the given character within the view, or -1
+     */
+    public int indexOf(char c) {
+        for (int offset = offsetStart; offset < offsetEnd; offset++) {
+            if (c == text.charAt(offset)) {
+                return offset - offsetStart;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Append the viewed characters to the given buffer in bulk
+     *
+     * @param   buffer
+     * @return  StringBuilder   The given buffer
+     */
+    public StringBuilder appendTo(StringBuilder buffer) {
+        return buffer.append(text, offsetStart, offsetEnd);
+    }
+
+    @Override
+    public int length() {
+        return offsetEnd - offsetStart;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return text.charAt(offsetStart + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new LineView(text, offsetStart + start, offsetStart + end);
+    }
+
+    @Override
+    public String toString() {
+        return text.subSequence(offsetStart, offsetEnd).toString();
+    }
+}
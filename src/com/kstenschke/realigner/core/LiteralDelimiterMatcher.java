@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import com.kstenschke.realigner.utils.UtilsTextual;
+
+/**
+ * Finds occurrences of a fixed delimiter string
+ */
+public class LiteralDelimiterMatcher implements DelimiterMatcher {
+
+    private final String delimiter;
+    private final int disposalMethod;
+
+    private int matchEnd = -1;
+
+    /**
+     * Constructor
+     *
+     * @param delimiter
+     * @param disposalMethod    Before/At/After
+     */
+    public LiteralDelimiterMatcher(String delimiter, int disposalMethod) {
+        this.delimiter      = delimiter;
+        this.disposalMethod = disposalMethod;
+    }
+
+    @Override
+    public int find(CharSequence text, int offsetStart, int offsetEnd) {
+        int offset = UtilsTextual.indexOf(text, delimiter, offsetStart, offsetEnd);
+        matchEnd = -1 == offset ? -1 : offset + delimiter.length();
+
+        return offset;
+    }
+
+    @Override
+    public int getMatchEnd() {
+        return matchEnd;
+    }
+
+    @Override
+    public int getDisposalMethod() {
+        return disposalMethod;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.*;
+
+/**
+ * Finds occurrences of any of multiple delimiters in one left-to-right pass, using an Aho-Corasick automaton.
+ * Of overlapping occurrences, the leftmost one wins, of those beginning at the same offset the longest one
+ */
+public class MultiDelimiterMatcher implements DelimiterMatcher {
+
+    private final int[] delimiterLengths;
+    private final int[] disposalMethods;
+    private final int maxDelimiterLength;
+
+    // Column of each char within the transition table, -1: char does not occur in any delimiter
+    private final int[] asciiColumns = new int[128];
+    private final Map<Character, Integer> otherColumns = new HashMap<>();
+
+    // Per state: next state per column, indices of delimiters ending in the state (incl. via failure links)
+    private final int[][] transitions;
+    private final int[][] matchedDelimiters;
+
+    private int matchEnd = -1;
+    private int matchDisposalMethod;
+
+    /**
+     * Constructor
+     *
+     * @param delimiters    Delimiters mapped to their disposal method (Before/At/After), empty delimiters are ignored
+     */
+    public MultiDelimiterMatcher(Map<String, Integer> delimiters) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> disposals = new ArrayList<>();
+        for (Map.Entry<String, Integer> delimiter : delimiters.entrySet()) {
+            if (null != delimiter.getKey() && !delimiter.getKey().isEmpty()) {
+                texts.add(delimiter.getKey());
+                disposals.add(delimiter.getValue());
+            }
+        }
+
+        int amountDelimiters  = texts.size();
+        this.delimiterLengths = new int[amountDelimiters];
+        this.disposalMethods  = new int[amountDelimiters];
+        int maxLength = 0;
+        for (int i = 0; i < amountDelimiters; i++) {
+            delimiterLengths[i] = texts.get(i).length();
+            disposalMethods[i]  = disposals.get(i);
+            maxLength = Math.max(maxLength, delimiterLengths[i]);
+        }
+        this.maxDelimiterLength = maxLength;
+        this.matchDisposalMethod = amountDelimiters > 0 ? disposalMethods[0] : SplitEngine.METHOD_DELIMITER_DISPOSAL_AT;
+
+        int amountColumns = initColumns(texts);
+
+        // Build trie
+        List<int[]> goTo = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        goTo.add(newRow(amountColumns));
+        outputs.add(new ArrayList<>());
+        for (int i = 0; i < amountDelimiters; i++) {
+            int state = 0;
+            for (char c : texts.get(i).toCharArray()) {
+                int column = getColumn(c);
+                if (-1 == goTo.get(state)[column]) {
+                    goTo.get(state)[column] = goTo.size();
+                    goTo.add(newRow(amountColumns));
+                    outputs.add(new ArrayList<>());
+                }
+                state = goTo.get(state)[column];
+            }
+            outputs.get(state).add(i);
+        }
+
+        // Breadth-first: failure links, complete transitions into a DFA, inherit outputs of failure states
+        int amountStates = goTo.size();
+        int[] failure = new int[amountStates];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < amountColumns; column++) {
+            int next = goTo.get(0)[column];
+            if (-1 == next) {
+                goTo.get(0)[column] = 0;
+            } else {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs.get(state).addAll(outputs.get(failure[state]));
+            for (int column = 0; column < amountColumns; column++) {
+                int next = goTo.get(state)[column];
+                if (-1 == next) {
+                    goTo.get(state)[column] = goTo.get(failure[state])[column];
+                } else {
+                    failure[next] = goTo.get(failure[state])[column];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions       = goTo.toArray(new int[amountStates][]);
+        this.matchedDelimiters = new int[amountStates][];
+        for (int state = 0; state < amountStates; state++) {
+            List<Integer> matched = outputs.get(state);
+            matchedDelimiters[state] = new int[matched.size()];
+            for (int i = 0; i < matched.size(); i++) {
+                matchedDelimiters[state][i] = matched.get(i);
+            }
+        }
+    }
+
+    /**
+     * Assign a column of the transition table to each distinct char of the delimiters
+     *
+     * @param   delimiters
+     * @return  int         Amount of columns
+     */
+    private int initColumns(List<String> delimiters) {
+        Arrays.fill(asciiColumns, -1);
+        int amountColumns = 0;
+        for (String delimiter : delimiters) {
+            for (char c : delimiter.toCharArray()) {
+                if (-1 == getColumn(c)) {
+                    if (c < 128) {
+                        asciiColumns[c] = amountColumns;
+                    } else {
+                        otherColumns.put(c, amountColumns);
+                    }
+                    amountColumns++;
+                }
+            }
+        }
+
+        return amountColumns;
+    }
+
+    private int getColumn(char c) {
+        if (c < 128) {
+            return asciiColumns[c];
+        }
+        Integer column = otherColumns.get(c);
+
+        return null == column ? -1 : column;
+    }
+
+    private static int[] newRow(int amountColumns) {
+        int[] row = new int[amountColumns];
+        Arrays.fill(row, -1);
+
+        return row;
+    }
+
+    @Override
+    public int find(CharSequence text, int offsetStart, int offsetEnd) {
+        int matchStart  = -1;
+        int matchLength = 0;
+        int state = 0;
+
+        for (int offset = offsetStart; offset < offsetEnd; offset++) {
+            if (-1 != matchStart && offset >= matchStart + maxDelimiterLength) {
+                // No later occurrence can begin at or before the one found
+                break;
+            }
+            int column = getColumn(text.charAt(offset));
+            state = -1 == column ? 0 : transitions[state][column];
+
+            for (int delimiter : matchedDelimiters[state]) {
+                int length = delimiterLengths[delimiter];
+                int start  = offset + 1 - length;
+                if (-1 == matchStart || start < matchStart || (start == matchStart && length > matchLength)) {
+                    matchStart          = start;
+                    matchLength         = length;
+                    matchDisposalMethod = disposalMethods[delimiter];
+                }
+            }
+        }
+        matchEnd = -1 == matchStart ? -1 : matchStart + matchLength;
+
+        return matchStart;
+    }
+
+    @Override
+    public int getMatchEnd() {
+        return matchEnd;
+    }
+
+    @Override
+    public int getDisposalMethod() {
+        return matchDisposalMethod;
+    }
+}
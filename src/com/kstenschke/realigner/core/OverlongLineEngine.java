@@ -0,0 +1,281 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Breaking of all lines wider than a right margin, independent from the IDE. Line widths are measured into a primitive
+ * array (see DisplayWidth), then break points are chosen within each overlong line. Both phases process ranges of lines
+ * in parallel, the resulting breaks are collected into one edit plan.
+ * Lines are broken at whitespace outside of string literals only: the whitespace is replaced by a line separator and
+ * the prefix of the line (indentation and comment marker), all other characters remain untouched
+ */
+public class OverlongLineEngine {
+
+    // Minimum amount of lines to be scanned in parallel
+    private static final int PARALLEL_MIN_LINES = 20000;
+
+    // Minimum amount of lines per parallel chunk of measuring
+    private static final int CHUNK_MIN_LINES = 4096;
+
+    // Minimum amount of overlong lines per parallel chunk of breaking
+    private static final int CHUNK_MIN_OVERLONG_LINES = 64;
+
+    /**
+     * @param   document
+     * @param   margin          Maximum line width in columns
+     * @param   tabSize         Columns per tab
+     * @param   cancellation
+     * @return  EditPlan        Replacements of the whitespace at all breaks, or null if there is none to be broken
+     */
+    public static EditPlan breakOverlongLines(LineDocument document, int margin, int tabSize, Cancellation cancellation) {
+        ForkJoinPool pool = document.getLineCount() >= PARALLEL_MIN_LINES && ForkJoinPool.getCommonPoolParallelism() > 1
+                ? ForkJoinPool.commonPool()
+                : null;
+
+        return breakOverlongLines(document, margin, tabSize, pool, cancellation);
+    }
+
+    /**
+     * @param   document
+     * @param   margin          Maximum line width in columns
+     * @param   tabSize         Columns per tab
+     * @param   pool            Pool to process chunks of lines on, null: process in one pass on the calling thread
+     * @param   cancellation
+     * @return  EditPlan        Replacements of the whitespace at all breaks, or null if there is none to be broken
+     */
+    public static EditPlan breakOverlongLines(LineDocument document, int margin, int tabSize, ForkJoinPool pool, Cancellation cancellation) {
+        LineIndex lineIndex = LineIndex.of(document, 0, document.getLineCount() - 1, cancellation);
+        CharSequence text   = lineIndex.getCharsSequence();
+        int[] lineWidths    = getLineWidths(lineIndex, tabSize, pool, cancellation);
+
+        int amountOverlongLines = 0;
+        int[] overlongLineNumbers = new int[16];
+        for (int lineNumber = 0; lineNumber < lineWidths.length; lineNumber++) {
+            if (lineWidths[lineNumber] > margin) {
+                if (amountOverlongLines == overlongLineNumbers.length) {
+                    overlongLineNumbers = Arrays.copyOf(overlongLineNumbers, amountOverlongLines * 2);
+                }
+                overlongLineNumbers[amountOverlongLines++] = lineNumber;
+            }
+        }
+        if (0 == amountOverlongLines) {
+            return null;
+        }
+
+        // Breaking is costlier than measuring: chunks consist of overlong lines only, so the work is spread evenly
+        final int[] lineNumbers = overlongLineNumbers;
+        List<EditPlan> chunkEditPlans = runChunks(amountOverlongLines, CHUNK_MIN_OVERLONG_LINES, pool, cancellation, (indexStart, indexEnd, chunkCancellation) -> {
+            EditPlan chunkEditPlan = new EditPlan();
+            for (int index = indexStart; index < indexEnd; index++) {
+                chunkCancellation.checkCanceled();
+                addLineBreaks(chunkEditPlan, text, lineIndex.getLineStartOffset(lineNumbers[index]), lineIndex.getLineEndOffset(lineNumbers[index]), margin, tabSize);
+            }
+            return chunkEditPlan;
+        });
+
+        EditPlan editPlan = new EditPlan();
+        for (EditPlan chunkEditPlan : chunkEditPlans) {
+            for (EditPlan.Edit edit : chunkEditPlan.getEdits()) {
+                editPlan.replace(edit.offsetStart, edit.offsetEnd, edit.text);
+            }
+        }
+
+        return editPlan.isEmpty() ? null : editPlan;
+    }
+
+    /**
+     * @param   text
+     * @param   offsetLineStart
+     * @param   offsetLineEnd   End offset of the line (excluding its line separator)
+     * @param   margin          Maximum line width in columns
+     * @param   tabSize         Columns per tab
+     * @return  EditPlan        Replacements of the whitespace at all breaks of the given line, or null if it cannot be broken
+     */
+    public static EditPlan breakLine(CharSequence text, int offsetLineStart, int offsetLineEnd, int margin, int tabSize) {
+        EditPlan editPlan = new EditPlan();
+        addLineBreaks(editPlan, text, offsetLineStart, offsetLineEnd, margin, tabSize);
+
+        return editPlan.isEmpty() ? null : editPlan;
+    }
+
+    /**
+     * Choose break points greedily in one pass: when a character exceeds the margin, the line is broken at the last
+     * whitespace before it. Parts w/o such whitespace remain overlong
+     *
+     * @param   editPlan
+     * @param   text
+     * @param   offsetLineStart
+     * @param   offsetLineEnd
+     * @param   margin
+     * @param   tabSize
+     */
+    private static void addLineBreaks(EditPlan editPlan, CharSequence text, int offsetLineStart, int offsetLineEnd, int margin, int tabSize) {
+        int offsetMarkerStart  = ReflowEngine.skipWhitespace(text, offsetLineStart, offsetLineEnd);
+        int offsetMarkerEnd    = ReflowEngine.getCommentMarkerEnd(text, offsetMarkerStart, offsetLineEnd);
+        int offsetContentStart = ReflowEngine.skipWhitespace(text, offsetMarkerEnd, offsetLineEnd);
+
+        String lineBreak  = "\n" + text.subSequence(offsetLineStart, offsetContentStart);
+        int columnContent = DisplayWidth.getColumns(text, offsetLineStart, offsetContentStart, tabSize);
+
+        // Within comment lines quotes are prose, within code lines a trailing "//" comment must not be broken
+        boolean isCode      = offsetMarkerEnd == offsetMarkerStart;
+        boolean isBreakable = true;
+        char quote = 0;
+
+        int offsetBreakStart = -1;
+        int offsetBreakEnd   = -1;
+        int column = columnContent;
+        int offset = offsetContentStart;
+        while (offset < offsetLineEnd) {
+            char c = text.charAt(offset);
+            if (0 == quote && ReflowEngine.isWhitespace(c)) {
+                int offsetWhitespaceEnd = ReflowEngine.skipWhitespace(text, offset, offsetLineEnd);
+                if (isBreakable && offsetWhitespaceEnd < offsetLineEnd) {
+                    offsetBreakStart = offset;
+                    offsetBreakEnd   = offsetWhitespaceEnd;
+                }
+                column = DisplayWidth.getColumns(text, offset, offsetWhitespaceEnd, tabSize, column);
+                offset = offsetWhitespaceEnd;
+                continue;
+            }
+
+            int offsetNext = offset + 1;
+            if (isCode) {
+                if (0 != quote) {
+                    if ('\\' == c && offsetNext < offsetLineEnd) {
+                        // Escaped character
+                        offsetNext++;
+                    } else if (quote == c) {
+                        quote = 0;
+                    }
+                } else if ('"' == c || isCharQuoteStart(text, offset, offsetContentStart)) {
+                    quote = c;
+                } else if ('/' == c && offsetNext < offsetLineEnd && '/' == text.charAt(offsetNext)) {
+                    isBreakable = false;
+                }
+            }
+            if (Character.isHighSurrogate(c) && offsetNext < offsetLineEnd && Character.isLowSurrogate(text.charAt(offsetNext))) {
+                offsetNext++;
+            }
+
+            column = DisplayWidth.getColumns(text, offset, offsetNext, tabSize, column);
+            if (column > margin && -1 != offsetBreakStart) {
+                editPlan.replace(offsetBreakStart, offsetBreakEnd, lineBreak);
+                column = DisplayWidth.getColumns(text, offsetBreakEnd, offsetNext, tabSize, columnContent);
+                offsetBreakStart = -1;
+            }
+            offset = offsetNext;
+        }
+    }
+
+    /**
+     * @param   text
+     * @param   offset
+     * @param   offsetContentStart
+     * @return  boolean     Does a single quote or backtick at the given offset start a literal? Not if it is an apostrophe, e.g. "don't"
+     */
+    private static boolean isCharQuoteStart(CharSequence text, int offset, int offsetContentStart) {
+        char c = text.charAt(offset);
+
+        return ('\'' == c || '`' == c)
+            && (offset == offsetContentStart || !Character.isLetterOrDigit(text.charAt(offset - 1)));
+    }
+
+    /**
+     * @param   lineIndex
+     * @param   tabSize
+     * @param   pool
+     * @param   cancellation
+     * @return  int[]           Width of each line in columns, tabs expanded to tab stops
+     */
+    private static int[] getLineWidths(LineIndex lineIndex, int tabSize, ForkJoinPool pool, Cancellation cancellation) {
+        CharSequence text = lineIndex.getCharsSequence();
+        int[] lineWidths  = new int[lineIndex.getLineNumberEnd() + 1];
+
+        // Chunks write disjoint ranges of the array
+        runChunks(lineWidths.length, CHUNK_MIN_LINES, pool, cancellation, (lineNumberStart, lineNumberEnd, chunkCancellation) -> {
+            for (int lineNumber = lineNumberStart; lineNumber < lineNumberEnd; lineNumber++) {
+                if (0 == (lineNumber & 0x3FF)) {
+                    chunkCancellation.checkCanceled();
+                }
+                lineWidths[lineNumber] = DisplayWidth.getColumns(text, lineIndex.getLineStartOffset(lineNumber), lineIndex.getLineEndOffset(lineNumber), tabSize);
+            }
+            return lineNumberEnd - lineNumberStart;
+        });
+
+        return lineWidths;
+    }
+
+    /**
+     * Work on a range of indices, accessing only data that is safe to be read from any thread
+     */
+    @FunctionalInterface
+    private interface ChunkFunction<T> {
+        T apply(int indexStart, int indexEnd, Cancellation cancellation);
+    }
+
+    /**
+     * Cut the given amount of indices into chunks, process them in parallel on the given pool
+     *
+     * @param   amount
+     * @param   chunkMinSize    Minimum amount of indices per chunk
+     * @param   pool            Pool to process the chunks on, null: process all indices as one chunk on the calling thread
+     * @param   cancellation
+     * @param   function
+     * @return  List            Results of the chunks, in order
+     */
+    private static <T> List<T> runChunks(int amount, int chunkMinSize, ForkJoinPool pool, Cancellation cancellation, ChunkFunction<T> function) {
+        int chunkSize = null == pool ? amount : Math.max(chunkMinSize, amount / (pool.getParallelism() * 4) + 1);
+        if (chunkSize >= amount) {
+            return Collections.singletonList(function.apply(0, amount, cancellation));
+        }
+
+        // Workers poll the flag, as the given cancellation might depend on the calling thread (e.g. its progress indicator)
+        AtomicBoolean isCanceled = new AtomicBoolean(false);
+        Cancellation workerCancellation = () -> {
+            if (isCanceled.get()) {
+                throw new CancellationException();
+            }
+        };
+
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(amount / chunkSize + 1);
+        for (int index = 0; index < amount; index += chunkSize) {
+            final int indexStart = index;
+            final int indexEnd   = Math.min(index + chunkSize, amount);
+            tasks.add(pool.submit(() -> function.apply(indexStart, indexEnd, workerCancellation)));
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (ForkJoinTask<T> task : tasks) {
+                results.add(ParallelTasks.await(task, cancellation));
+            }
+        } finally {
+            isCanceled.set(true);
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.concurrent.*;
+
+/**
+ * Waiting for tasks of the text engines run on a fork/join pool, staying responsive to cancellation meanwhile
+ */
+class ParallelTasks {
+
+    // Interval of checking for cancellation while waiting for parallel tasks
+    private static final long CANCELLATION_POLL_MILLIS = 50;
+
+    /**
+     * @param   task
+     * @param   cancellation    Polled while waiting
+     * @return  T               Result of the task
+     */
+    static <T> T await(ForkJoinTask<T> task, Cancellation cancellation) {
+        while (true) {
+            cancellation.checkCanceled();
+            try {
+                return task.get(CANCELLATION_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                // Check cancellation, continue waiting
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded least-recently-used cache of compiled regular expressions, keyed by pattern and flags
+ */
+public class PatternCache {
+
+    private static final int MAX_SIZE = 32;
+
+    private static final Map<String, Pattern> patterns = new LinkedHashMap<String, Pattern>(MAX_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * @param   regex
+     * @param   flags   Pattern flags, e.g. Pattern.CASE_INSENSITIVE
+     * @return  Pattern
+     * @throws  PatternSyntaxException  If the given expression is invalid
+     */
+    public static Pattern get(String regex, int flags) {
+        String key = flags + ":" + regex;
+        synchronized (patterns) {
+            Pattern pattern = patterns.get(key);
+            if (null == pattern) {
+                pattern = Pattern.compile(regex, flags);
+                patterns.put(key, pattern);
+            }
+
+            return pattern;
+        }
+    }
+}
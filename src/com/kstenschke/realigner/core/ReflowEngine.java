@@ -0,0 +1,428 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.Arrays;
+
+/**
+ * Reflowing of paragraphs (prose, comment blocks, long argument lists) to a maximum line width, independent from the IDE.
+ * Paragraphs are separated by lines w/o content, or by a change of the comment marker that lines are prefixed with.
+ * Within a paragraph, whitespace runs are collapsed and line breaks are redistributed, either greedily (filling each
+ * line as much as possible) or via optimal fit (minimizing the raggedness of all lines but the last)
+ */
+public class ReflowEngine {
+
+    // Classes of characters within the break table
+    private static final byte CHAR_WORD = 0;
+    // Break opportunity, the whitespace is consumed by the break
+    private static final byte CHAR_WHITESPACE = 1;
+    // Break opportunity after the character, it is kept at the end of the line
+    private static final byte CHAR_BREAK_AFTER = 2;
+
+    private static final byte[] BREAK_TABLE = new byte[128];
+
+    // Characters that comment markers prefixing lines (e.g. "//", " * ", "#", "> ") consist of
+    private static final boolean[] COMMENT_MARKER_TABLE = new boolean[128];
+
+    static {
+        BREAK_TABLE[' ']  = CHAR_WHITESPACE;
+        BREAK_TABLE['\t'] = CHAR_WHITESPACE;
+        BREAK_TABLE['\r'] = CHAR_WHITESPACE;
+        BREAK_TABLE['\f'] = CHAR_WHITESPACE;
+        BREAK_TABLE[',']  = CHAR_BREAK_AFTER;
+        BREAK_TABLE[';']  = CHAR_BREAK_AFTER;
+
+        for (char c : "/*#;>!%".toCharArray()) {
+            COMMENT_MARKER_TABLE[c] = true;
+        }
+    }
+
+    /**
+     * Tokens of the paragraph being reflowed: offsets of each word, and whether it is separated from the preceding
+     * word by whitespace (or by a break-after character only)
+     */
+    private static class Paragraph {
+        int offsetFirstPrefixStart;
+        int offsetFirstPrefixEnd;
+        int offsetPrefixStart;
+        int offsetPrefixEnd;
+        int offsetMarkerStart;
+        int offsetMarkerEnd;
+        int amountLines;
+
+        int amountTokens;
+        int[] tokenStarts = new int[64];
+        int[] tokenEnds   = new int[64];
+        int[] tokenWidths = new int[64];
+        boolean[] isSpaced = new boolean[64];
+
+        void addToken(int offsetStart, int offsetEnd, int width, boolean isSpacedToken) {
+            if (amountTokens == tokenStarts.length) {
+                int capacity = amountTokens * 2;
+                tokenStarts = Arrays.copyOf(tokenStarts, capacity);
+                tokenEnds   = Arrays.copyOf(tokenEnds, capacity);
+                tokenWidths = Arrays.copyOf(tokenWidths, capacity);
+                isSpaced    = Arrays.copyOf(isSpaced, capacity);
+            }
+            tokenStarts[amountTokens] = offsetStart;
+            tokenEnds[amountTokens]   = offsetEnd;
+            tokenWidths[amountTokens] = width;
+            isSpaced[amountTokens]    = isSpacedToken;
+            amountTokens++;
+        }
+
+        int getWidth(int index) {
+            return tokenWidths[index];
+        }
+
+        int getGap(int index) {
+            return isSpaced[index] ? 1 : 0;
+        }
+
+        /**
+         * @param   text
+         * @param   index
+         * @return  boolean     Can a line start with the given word? Not if it would be taken for a comment marker
+         */
+        boolean isLineStart(CharSequence text, int index) {
+            for (int offset = tokenStarts[index]; offset < tokenEnds[index]; offset++) {
+                if (!isCommentMarkerChar(text.charAt(offset))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   width           Maximum line width in columns
+     * @param   tabSize         Columns per tab, within the indentation
+     * @param   isOptimalFit    Minimize raggedness instead of filling lines greedily?
+     * @param   cancellation
+     * @return  EditPlan        Single replacement of the given lines by themselves reflowed, or null if nothing changes
+     */
+    public static EditPlan reflow(LineDocument document, int lineNumberStart, int lineNumberEnd, int width, int tabSize, boolean isOptimalFit, Cancellation cancellation) {
+        int offsetStart = document.getLineStartOffset(lineNumberStart);
+        int offsetEnd   = document.getLineEndOffset(lineNumberEnd);
+        CharSequence text = document.getCharsSequence();
+
+        String reflowed = getReflowedText(text, offsetStart, offsetEnd, width, tabSize, isOptimalFit, cancellation);
+        if (reflowed.contentEquals(new LineView(text, offsetStart, offsetEnd))) {
+            return null;
+        }
+
+        EditPlan editPlan = new EditPlan();
+        editPlan.replace(offsetStart, offsetEnd, reflowed);
+
+        return editPlan;
+    }
+
+    /**
+     * Reflow all paragraphs within the given lines in one pass
+     *
+     * @param   text
+     * @param   offsetStart     Start offset of first line
+     * @param   offsetEnd       End offset of last line (excluding its line separator)
+     * @param   width           Maximum line width in columns
+     * @param   tabSize         Columns per tab, within the indentation
+     * @param   isOptimalFit    Minimize raggedness instead of filling lines greedily?
+     * @param   cancellation
+     * @return  String          Reflowed lines
+     */
+    public static String getReflowedText(CharSequence text, int offsetStart, int offsetEnd, int width, int tabSize, boolean isOptimalFit, Cancellation cancellation) {
+        StringBuilder reflowed = new StringBuilder(offsetEnd - offsetStart + 16);
+        Paragraph paragraph    = new Paragraph();
+
+        int offsetLineStart = offsetStart;
+        while (offsetLineStart <= offsetEnd) {
+            cancellation.checkCanceled();
+
+            int offsetLineEnd = offsetLineStart;
+            while (offsetLineEnd < offsetEnd && '\n' != text.charAt(offsetLineEnd)) {
+                offsetLineEnd++;
+            }
+
+            // Prefix: indentation, optionally followed by a comment marker and whitespace
+            int offsetMarkerStart = skipWhitespace(text, offsetLineStart, offsetLineEnd);
+            int offsetMarkerEnd   = getCommentMarkerEnd(text, offsetMarkerStart, offsetLineEnd);
+            int offsetContentStart = skipWhitespace(text, offsetMarkerEnd, offsetLineEnd);
+            int offsetContentEnd   = offsetLineEnd;
+            while (offsetContentEnd > offsetContentStart && CHAR_WHITESPACE == getCharClass(text.charAt(offsetContentEnd - 1))) {
+                offsetContentEnd--;
+            }
+
+            if (offsetContentStart == offsetContentEnd) {
+                // Line w/o content separates paragraphs, it is kept as is
+                appendParagraph(reflowed, text, paragraph, width, tabSize, isOptimalFit);
+                reflowed.append(text, offsetLineStart, offsetLineEnd).append('\n');
+            } else {
+                if (paragraph.amountTokens > 0
+                 && !isEqualRange(text, paragraph.offsetMarkerStart, paragraph.offsetMarkerEnd, offsetMarkerStart, offsetMarkerEnd)
+                ) {
+                    appendParagraph(reflowed, text, paragraph, width, tabSize, isOptimalFit);
+                }
+                if (0 == paragraph.amountTokens) {
+                    paragraph.offsetFirstPrefixStart = offsetLineStart;
+                    paragraph.offsetFirstPrefixEnd   = offsetContentStart;
+                    paragraph.offsetMarkerStart      = offsetMarkerStart;
+                    paragraph.offsetMarkerEnd        = offsetMarkerEnd;
+                }
+                if (paragraph.amountLines < 2) {
+                    // Prefix of following lines is taken from the 2nd line, e.g. for hanging indentation
+                    paragraph.offsetPrefixStart = offsetLineStart;
+                    paragraph.offsetPrefixEnd   = offsetContentStart;
+                }
+                paragraph.amountLines++;
+                addTokens(paragraph, text, offsetContentStart, offsetContentEnd);
+            }
+
+            offsetLineStart = offsetLineEnd + 1;
+        }
+        appendParagraph(reflowed, text, paragraph, width, tabSize, isOptimalFit);
+
+        // Remove line separator appended to last line
+        reflowed.setLength(reflowed.length() - 1);
+
+        return reflowed.toString();
+    }
+
+    /**
+     * @param   c
+     * @return  byte    Class of the given character within the break table
+     */
+    private static byte getCharClass(char c) {
+        if (c < 128) {
+            return BREAK_TABLE[c];
+        }
+
+        return Character.isSpaceChar(c) ? CHAR_WHITESPACE : CHAR_WORD;
+    }
+
+    private static boolean isCommentMarkerChar(char c) {
+        return c < 128 && COMMENT_MARKER_TABLE[c];
+    }
+
+    static boolean isWhitespace(char c) {
+        return CHAR_WHITESPACE == getCharClass(c);
+    }
+
+    static int skipWhitespace(CharSequence text, int offset, int offsetEnd) {
+        while (offset < offsetEnd && CHAR_WHITESPACE == getCharClass(text.charAt(offset))) {
+            offset++;
+        }
+
+        return offset;
+    }
+
+    /**
+     * @param   text
+     * @param   offsetMarkerStart   Offset of first non-whitespace character of a line
+     * @param   offsetLineEnd
+     * @return  int                 Offset after the comment marker prefixing the line, or the given start if there is none
+     */
+    static int getCommentMarkerEnd(CharSequence text, int offsetMarkerStart, int offsetLineEnd) {
+        int offsetMarkerEnd = offsetMarkerStart;
+        while (offsetMarkerEnd < offsetLineEnd && isCommentMarkerChar(text.charAt(offsetMarkerEnd))) {
+            offsetMarkerEnd++;
+        }
+        if (offsetMarkerEnd < offsetLineEnd && CHAR_WHITESPACE != getCharClass(text.charAt(offsetMarkerEnd))) {
+            // Not a comment marker but content, e.g. "*emphasis*"
+            return offsetMarkerStart;
+        }
+
+        return offsetMarkerEnd;
+    }
+
+    private static boolean isEqualRange(CharSequence text, int offsetStart1, int offsetEnd1, int offsetStart2, int offsetEnd2) {
+        if (offsetEnd1 - offsetStart1 != offsetEnd2 - offsetStart2) {
+            return false;
+        }
+        for (int i = 0; i < offsetEnd1 - offsetStart1; i++) {
+            if (text.charAt(offsetStart1 + i) != text.charAt(offsetStart2 + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Split the given content of a line into words, breaking at whitespace and after break-after characters
+     *
+     * @param   paragraph
+     * @param   text
+     * @param   offsetStart     Offset of first non-whitespace character of the content
+     * @param   offsetEnd       Offset after last non-whitespace character of the content
+     */
+    private static void addTokens(Paragraph paragraph, CharSequence text, int offsetStart, int offsetEnd) {
+        // Words of consecutive lines are separated by whitespace
+        boolean isSpaced = paragraph.amountTokens > 0;
+
+        int offset = offsetStart;
+        while (offset < offsetEnd) {
+            int offsetTokenStart = offset;
+            byte charClass = CHAR_WORD;
+            while (offset < offsetEnd && CHAR_WORD == (charClass = getCharClass(text.charAt(offset)))) {
+                offset++;
+            }
+            if (CHAR_BREAK_AFTER == charClass) {
+                offset++;
+            }
+            if (offset > offsetTokenStart) {
+                paragraph.addToken(offsetTokenStart, offset, DisplayWidth.getColumns(text, offsetTokenStart, offset, 0), isSpaced);
+            }
+
+            int offsetWordStart = skipWhitespace(text, offset, offsetEnd);
+            isSpaced = offsetWordStart > offset;
+            offset   = offsetWordStart;
+        }
+    }
+
+    /**
+     * Append lines of the given paragraph, broken to the given width. The paragraph is reset afterwards
+     *
+     * @param   reflowed
+     * @param   text
+     * @param   paragraph
+     * @param   width
+     * @param   tabSize
+     * @param   isOptimalFit
+     */
+    private static void appendParagraph(StringBuilder reflowed, CharSequence text, Paragraph paragraph, int width, int tabSize, boolean isOptimalFit) {
+        int amountTokens = paragraph.amountTokens;
+        if (0 == amountTokens) {
+            return;
+        }
+
+        int widthFirstLine = width - DisplayWidth.getColumns(text, paragraph.offsetFirstPrefixStart, paragraph.offsetFirstPrefixEnd, tabSize);
+        int widthLine      = width - DisplayWidth.getColumns(text, paragraph.offsetPrefixStart, paragraph.offsetPrefixEnd, tabSize);
+
+        int[] lineStarts = isOptimalFit
+                ? getOptimalLineStarts(text, paragraph, widthFirstLine, widthLine)
+                : getGreedyLineStarts(text, paragraph, widthFirstLine, widthLine);
+
+        int amountLines = lineStarts.length;
+        for (int line = 0; line < amountLines; line++) {
+            if (0 == line) {
+                reflowed.append(text, paragraph.offsetFirstPrefixStart, paragraph.offsetFirstPrefixEnd);
+            } else {
+                reflowed.append(text, paragraph.offsetPrefixStart, paragraph.offsetPrefixEnd);
+            }
+
+            int indexEnd = line + 1 < amountLines ? lineStarts[line + 1] : amountTokens;
+            for (int index = lineStarts[line]; index < indexEnd; index++) {
+                if (index > lineStarts[line] && paragraph.isSpaced[index]) {
+                    reflowed.append(' ');
+                }
+                reflowed.append(text, paragraph.tokenStarts[index], paragraph.tokenEnds[index]);
+            }
+            reflowed.append('\n');
+        }
+
+        paragraph.amountTokens = 0;
+        paragraph.amountLines  = 0;
+    }
+
+    /**
+     * Fill each line with as many words as fit, in one linear pass. Words wider than the line are put on a line of their own
+     *
+     * @param   text
+     * @param   paragraph
+     * @param   widthFirstLine  Available columns within the first line
+     * @param   widthLine       Available columns within following lines
+     * @return  int[]           Indices of the first word of each line
+     */
+    private static int[] getGreedyLineStarts(CharSequence text, Paragraph paragraph, int widthFirstLine, int widthLine) {
+        int[] lineStarts = new int[8];
+        int amountLines  = 1;
+
+        int lineWidth = paragraph.getWidth(0);
+        for (int index = 1; index < paragraph.amountTokens; index++) {
+            int tokenWidth = paragraph.getGap(index) + paragraph.getWidth(index);
+            if (lineWidth + tokenWidth > (1 == amountLines ? widthFirstLine : widthLine) && paragraph.isLineStart(text, index)) {
+                if (amountLines == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, amountLines * 2);
+                }
+                lineStarts[amountLines++] = index;
+                lineWidth = paragraph.getWidth(index);
+            } else {
+                lineWidth += tokenWidth;
+            }
+        }
+
+        return Arrays.copyOf(lineStarts, amountLines);
+    }
+
+    /**
+     * Break lines so that the sum of squared trailing free columns over all lines but the last is minimal.
+     * Dynamic programming over the words; only candidate lines not exceeding the width are considered, so the effort
+     * is linear in the amount of words times the maximum amount of words per line
+     *
+     * @param   text
+     * @param   paragraph
+     * @param   widthFirstLine  Available columns within the first line
+     * @param   widthLine       Available columns within following lines
+     * @return  int[]           Indices of the first word of each line
+     */
+    private static int[] getOptimalLineStarts(CharSequence text, Paragraph paragraph, int widthFirstLine, int widthLine) {
+        int amountTokens = paragraph.amountTokens;
+
+        // Minimum cost of breaking words [0, index), and start of the last line of that solution
+        long[] costs    = new long[amountTokens + 1];
+        int[] lineStart = new int[amountTokens + 1];
+
+        for (int indexEnd = 1; indexEnd <= amountTokens; indexEnd++) {
+            costs[indexEnd] = Long.MAX_VALUE;
+
+            int lineWidth = paragraph.getWidth(indexEnd - 1);
+            for (int index = indexEnd - 1; index >= 0; index--) {
+                if (index < indexEnd - 1) {
+                    lineWidth += paragraph.getWidth(index) + paragraph.getGap(index + 1);
+                }
+                int availableWidth = 0 == index ? widthFirstLine : widthLine;
+                if (lineWidth > availableWidth && costs[indexEnd] < Long.MAX_VALUE) {
+                    // Line would overflow. Only allowed if there is no other way, e.g. for a word wider than the line
+                    break;
+                }
+                if (index > 0 && !paragraph.isLineStart(text, index)) {
+                    continue;
+                }
+
+                long freeColumns = Math.max(0, availableWidth - lineWidth);
+                long cost = costs[index] + (indexEnd == amountTokens ? 0 : freeColumns * freeColumns);
+                if (cost < costs[indexEnd]) {
+                    costs[indexEnd]     = cost;
+                    lineStart[indexEnd] = index;
+                }
+            }
+        }
+
+        int amountLines = 0;
+        for (int index = amountTokens; index > 0; index = lineStart[index]) {
+            amountLines++;
+        }
+        int[] lineStarts = new int[amountLines];
+        for (int index = amountTokens; index > 0; index = lineStart[index]) {
+            lineStarts[--amountLines] = lineStart[index];
+        }
+
+        return lineStarts;
+    }
+}
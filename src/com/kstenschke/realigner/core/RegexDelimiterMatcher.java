@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds (non-empty) matches of a regular expression, bounded in time and cancelable
+ */
+public class RegexDelimiterMatcher implements DelimiterMatcher {
+
+    private final Pattern pattern;
+    private final int disposalMethod;
+    private final Cancellation cancellation;
+    private final long timeoutMillis;
+
+    private CharSequence text;
+    private InterruptibleCharSequence interruptibleText;
+    private Matcher matcher;
+    private int matchEnd = -1;
+
+    /**
+     * Constructor
+     *
+     * @param pattern
+     * @param disposalMethod    Before/At/After
+     * @param cancellation
+     * @param timeoutMillis     Maximum duration of each single find, 0: unbounded
+     */
+    public RegexDelimiterMatcher(Pattern pattern, int disposalMethod, Cancellation cancellation, long timeoutMillis) {
+        this.pattern        = pattern;
+        this.disposalMethod = disposalMethod;
+        this.cancellation   = cancellation;
+        this.timeoutMillis  = timeoutMillis;
+    }
+
+    /**
+     * @throws  MatchTimeoutException   When the timeout is exceeded
+     */
+    @Override
+    public int find(CharSequence text, int offsetStart, int offsetEnd) {
+        if (text != this.text) {
+            this.text              = text;
+            this.interruptibleText = new InterruptibleCharSequence(text, cancellation, timeoutMillis);
+            this.matcher           = pattern.matcher(interruptibleText);
+            this.matcher.useTransparentBounds(true).useAnchoringBounds(false);
+        }
+
+        int offset = offsetStart;
+        while (offset < offsetEnd) {
+            matcher.region(offset, offsetEnd);
+            interruptibleText.resetDeadline();
+            if (!matcher.find()) {
+                break;
+            }
+            if (matcher.end() > matcher.start()) {
+                matchEnd = matcher.end();
+                return matcher.start();
+            }
+            // Skip empty match
+            offset = matcher.start() + 1;
+        }
+        matchEnd = -1;
+
+        return -1;
+    }
+
+    @Override
+    public int getMatchEnd() {
+        return matchEnd;
+    }
+
+    @Override
+    public int getDisposalMethod() {
+        return disposalMethod;
+    }
+}
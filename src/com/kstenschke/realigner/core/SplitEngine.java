@@ -0,0 +1,378 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import com.kstenschke.realigner.utils.UtilsTextual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Splitting of lines, independent from the IDE
+ */
+public class SplitEngine {
+
+    // Delimiter disposal methods
+    public static final int METHOD_DELIMITER_DISPOSAL_AT = 0;
+    public static final int METHOD_DELIMITER_DISPOSAL_BEFORE = 1;
+    public static final int METHOD_DELIMITER_DISPOSAL_AFTER = 2;
+
+    // Minimum length of text to be exploded in parallel
+    private static final int PARALLEL_MIN_LENGTH = 1024 * 1024;
+
+    // Minimum length of chunks to be exploded in parallel
+    private static final int CHUNK_MIN_LENGTH = 256 * 1024;
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   delimiter
+     * @param   trimWhitespace
+     * @param   delimiterDisposalMethod Before/At/After
+     * @param   cancellation
+     * @return  EditPlan                Replacement of the given lines by themselves exploded
+     */
+    public static EditPlan split(LineDocument document, int lineNumberStart, int lineNumberEnd, String delimiter, boolean trimWhitespace, int delimiterDisposalMethod, Cancellation cancellation) {
+        int offsetStart = document.getLineStartOffset(lineNumberStart);
+        int offsetEnd   = document.getLineEndOffset(lineNumberEnd);
+
+        EditPlan editPlan = new EditPlan();
+        editPlan.replace(offsetStart, offsetEnd,
+                getExplodedLinesText(document.getCharsSequence(), offsetStart, offsetEnd, delimiter, trimWhitespace, delimiterDisposalMethod, cancellation));
+
+        return editPlan;
+    }
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   delimiterMatcher
+     * @param   trimWhitespace
+     * @param   cancellation
+     * @return  EditPlan                Replacement of the given lines by themselves exploded
+     */
+    public static EditPlan split(LineDocument document, int lineNumberStart, int lineNumberEnd, DelimiterMatcher delimiterMatcher, boolean trimWhitespace, Cancellation cancellation) {
+        int offsetStart = document.getLineStartOffset(lineNumberStart);
+        int offsetEnd   = document.getLineEndOffset(lineNumberEnd);
+
+        EditPlan editPlan = new EditPlan();
+        editPlan.replace(offsetStart, offsetEnd,
+                getExplodedLinesText(document.getCharsSequence(), offsetStart, offsetEnd, delimiterMatcher, trimWhitespace, cancellation));
+
+        return editPlan;
+    }
+
+    /**
+     * Same result as split() with a delimiter matcher, but as one edit per line: the line separators between lines
+     * remain untouched (e.g. to preserve their kind), unless a line results in no item at all
+     *
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   delimiterMatcher
+     * @param   trimWhitespace
+     * @param   cancellation
+     * @return  EditPlan                Replacements of all changed lines by themselves exploded
+     */
+    public static EditPlan splitEach(LineDocument document, int lineNumberStart, int lineNumberEnd, DelimiterMatcher delimiterMatcher, boolean trimWhitespace, Cancellation cancellation) {
+        CharSequence text      = document.getCharsSequence();
+        EditPlan editPlan      = new EditPlan();
+        StringBuilder exploded = new StringBuilder();
+
+        String indent = null;
+        for (int lineNumber = lineNumberStart; lineNumber <= lineNumberEnd; lineNumber++) {
+            int offsetLineStart = document.getLineStartOffset(lineNumber);
+            int offsetLineEnd   = document.getLineEndOffset(lineNumber);
+
+            // Items following a preceding one are each prepended by a line separator, the first of which is the existing one
+            boolean hasPrecedingItem = null != indent;
+            exploded.setLength(0);
+            indent = explode(text, offsetLineStart, offsetLineEnd, -1, false, delimiterMatcher, trimWhitespace, indent, exploded, cancellation);
+
+            if (hasPrecedingItem ? 0 == exploded.length() : null == indent) {
+                // No item: remove the line along with its preceding separator, or with its following one if no item precedes
+                if (hasPrecedingItem) {
+                    editPlan.delete(document.getLineEndOffset(lineNumber - 1), offsetLineEnd);
+                } else {
+                    editPlan.delete(offsetLineStart, lineNumber < lineNumberEnd ? document.getLineStartOffset(lineNumber + 1) : offsetLineEnd);
+                }
+                continue;
+            }
+
+            String explodedLine = exploded.substring(hasPrecedingItem ? 1 : 0);
+            if (!explodedLine.contentEquals(new LineView(text, offsetLineStart, offsetLineEnd))) {
+                editPlan.replace(offsetLineStart, offsetLineEnd, explodedLine);
+            }
+        }
+
+        return editPlan;
+    }
+
+    /**
+     * Explode all lines within given offset range in one pass, splitting at delimiters found by the given matcher
+     *
+     * @param   text                    Document text
+     * @param   offsetStart             Start offset of first line
+     * @param   offsetEnd               End offset of last line (excluding its line separator)
+     * @param   delimiterMatcher
+     * @param   trimWhitespace
+     * @param   cancellation
+     * @return  String                  Exploded text to replace the given range with
+     */
+    public static String getExplodedLinesText(CharSequence text, int offsetStart, int offsetEnd, DelimiterMatcher delimiterMatcher, boolean trimWhitespace, Cancellation cancellation) {
+        StringBuilder exploded = new StringBuilder((offsetEnd - offsetStart) * 5 / 4 + 16);
+        explode(text, offsetStart, offsetEnd, -1, false, delimiterMatcher, trimWhitespace, null, exploded, cancellation);
+
+        return exploded.toString();
+    }
+
+    /**
+     * Explode all lines within given offset range: split each line at the delimiter, optionally trim the resulting
+     * items (dropping empty ones) and align all resulting lines to the indent of the first one.
+     * Large ranges are exploded in parallel on the common fork/join pool
+     *
+     * @param   text                    Document text
+     * @param   offsetStart             Start offset of first line
+     * @param   offsetEnd               End offset of last line (excluding its line separator)
+     * @param   delimiter
+     * @param   trimWhitespace
+     * @param   delimiterDisposalMethod Before/At/After
+     * @param   cancellation
+     * @return  String                  Exploded text to replace the given range with
+     */
+    public static String getExplodedLinesText(CharSequence text, int offsetStart, int offsetEnd, String delimiter, boolean trimWhitespace, int delimiterDisposalMethod, Cancellation cancellation) {
+        ForkJoinPool pool = offsetEnd - offsetStart >= PARALLEL_MIN_LENGTH && ForkJoinPool.getCommonPoolParallelism() > 1
+                ? ForkJoinPool.commonPool()
+                : null;
+
+        return getExplodedLinesText(text, offsetStart, offsetEnd, delimiter, trimWhitespace, delimiterDisposalMethod, pool, cancellation);
+    }
+
+    /**
+     * Explode all lines within given offset range. With a pool given, the range is cut into chunks, that begin
+     * right after a delimiter. The chunks are exploded in parallel and stitched together in order
+     *
+     * @param   text                    Document text
+     * @param   offsetStart             Start offset of first line
+     * @param   offsetEnd               End offset of last line (excluding its line separator)
+     * @param   delimiter
+     * @param   trimWhitespace
+     * @param   delimiterDisposalMethod Before/At/After
+     * @param   pool                    Pool to explode chunks on, null: explode in one pass on the calling thread
+     * @param   cancellation
+     * @return  String                  Exploded text to replace the given range with
+     */
+    public static String getExplodedLinesText(CharSequence text, int offsetStart, int offsetEnd, String delimiter, boolean trimWhitespace, int delimiterDisposalMethod, ForkJoinPool pool, Cancellation cancellation) {
+        int[] chunkOffsets = null == pool || !isChunkableDelimiter(delimiter)
+                ? new int[]{offsetStart, offsetEnd}
+                : getChunkOffsets(text, offsetStart, offsetEnd, delimiter, Math.max(CHUNK_MIN_LENGTH, (offsetEnd - offsetStart) / (pool.getParallelism() * 4)));
+        int amountChunks = chunkOffsets.length - 1;
+
+        // First chunk determines the indent, chunks are processed on the calling thread until it is known
+        StringBuilder exploded = new StringBuilder((offsetEnd - offsetStart) * 5 / 4 + 16);
+        DelimiterMatcher delimiterMatcher = new LiteralDelimiterMatcher(delimiter, delimiterDisposalMethod);
+        String indent = null;
+        int chunk = 0;
+        while (chunk < amountChunks && null == indent) {
+            indent = explode(text, chunkOffsets[chunk], chunkOffsets[chunk + 1], chunk > 0 ? chunkOffsets[chunk] - delimiter.length() : -1,
+                    chunk < amountChunks - 1, delimiterMatcher, trimWhitespace, indent, exploded, cancellation);
+            chunk++;
+        }
+        if (chunk == amountChunks) {
+            return exploded.toString();
+        }
+
+        // Workers poll the flag, as the given cancellation might depend on the calling thread (e.g. its progress indicator)
+        AtomicBoolean isCanceled = new AtomicBoolean(false);
+        Cancellation workerCancellation = () -> {
+            if (isCanceled.get()) {
+                throw new CancellationException();
+            }
+        };
+
+        List<ForkJoinTask<StringBuilder>> tasks = new ArrayList<>(amountChunks - chunk);
+        for (; chunk < amountChunks; chunk++) {
+            final int offsetChunkStart = chunkOffsets[chunk];
+            final int offsetChunkEnd   = chunkOffsets[chunk + 1];
+            final boolean isLastChunk  = chunk == amountChunks - 1;
+            final String chunkIndent   = indent;
+
+            tasks.add(pool.submit(() -> {
+                StringBuilder chunkExploded = new StringBuilder((offsetChunkEnd - offsetChunkStart) * 5 / 4 + 16);
+                explode(text, offsetChunkStart, offsetChunkEnd, offsetChunkStart - delimiter.length(), !isLastChunk,
+                        new LiteralDelimiterMatcher(delimiter, delimiterDisposalMethod), trimWhitespace, chunkIndent, chunkExploded, workerCancellation);
+                return chunkExploded;
+            }));
+        }
+
+        try {
+            for (ForkJoinTask<StringBuilder> task : tasks) {
+                exploded.append(ParallelTasks.await(task, cancellation));
+            }
+        } finally {
+            isCanceled.set(true);
+        }
+
+        return exploded.toString();
+    }
+
+    /**
+     * Chunks can only begin after any delimiter found, if the delimiter cannot overlap itself and is found within lines only
+     *
+     * @param   delimiter
+     * @return  boolean
+     */
+    private static boolean isChunkableDelimiter(String delimiter) {
+        if (delimiter.isEmpty() || -1 != delimiter.indexOf('\n')) {
+            return false;
+        }
+        for (int length = 1; length < delimiter.length(); length++) {
+            if (delimiter.regionMatches(0, delimiter, delimiter.length() - length, length)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param   text
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @param   delimiter
+     * @param   chunkLength     Minimum length of chunks
+     * @return  int[]           Start offsets of all chunks, followed by the end offset of the last one
+     */
+    private static int[] getChunkOffsets(CharSequence text, int offsetStart, int offsetEnd, String delimiter, int chunkLength) {
+        int[] chunkOffsets = new int[16];
+        chunkOffsets[0] = offsetStart;
+        int amountChunks = 1;
+
+        int offset = offsetStart + chunkLength;
+        while (offset < offsetEnd) {
+            int offsetDelimiter = UtilsTextual.indexOf(text, delimiter, offset, offsetEnd);
+            if (-1 == offsetDelimiter || offsetDelimiter + delimiter.length() >= offsetEnd) {
+                break;
+            }
+            if (amountChunks + 1 == chunkOffsets.length) {
+                chunkOffsets = Arrays.copyOf(chunkOffsets, chunkOffsets.length * 2);
+            }
+            chunkOffsets[amountChunks++] = offsetDelimiter + delimiter.length();
+            offset = offsetDelimiter + delimiter.length() + chunkLength;
+        }
+        chunkOffsets[amountChunks] = offsetEnd;
+
+        return Arrays.copyOf(chunkOffsets, amountChunks + 1);
+    }
+
+    /**
+     * Explode all lines within given offset range in one pass, append them to the given buffer
+     *
+     * @param   text                        Document text
+     * @param   offsetStart                 Start offset of first line, or end offset of a delimiter
+     * @param   offsetEnd                   End offset of last line (excluding its line separator), or end offset of a delimiter
+     * @param   offsetPrecedingDelimiter    Start offset of the delimiter the range begins after, -1: range begins at start of a line
+     * @param   isEndAfterDelimiter         Does the range end right after a delimiter (not at the end of a line)?
+     * @param   delimiterMatcher
+     * @param   trimWhitespace
+     * @param   indent                      Indent of the first resulting line, null if no item has been emitted yet
+     * @param   exploded                    Buffer to append to, exploded text of any preceding range (if indent is known)
+     * @param   cancellation
+     * @return  String                      Indent of the first resulting line, null if still no item has been emitted
+     */
+    private static String explode(CharSequence text, int offsetStart, int offsetEnd, int offsetPrecedingDelimiter, boolean isEndAfterDelimiter, DelimiterMatcher delimiterMatcher, boolean trimWhitespace, String indent, StringBuilder exploded, Cancellation cancellation) {
+        // Delimiter preceding the current item, to be prepended if disposed before
+        int offsetDelimiterStart = offsetPrecedingDelimiter;
+        int offsetDelimiterEnd   = offsetStart;
+        int delimiterDisposalMethod = delimiterMatcher.getDisposalMethod();
+
+        int offsetLineStart = offsetStart;
+        while (offsetLineStart <= offsetEnd) {
+            int offsetLineEnd = offsetLineStart;
+            while (offsetLineEnd < offsetEnd && text.charAt(offsetLineEnd) != '\n') {
+                offsetLineEnd++;
+            }
+
+            // Append each item of the current line as a line of its own
+            int offsetItemStart = offsetLineStart;
+            while (true) {
+                cancellation.checkCanceled();
+
+                boolean isDelimiterBefore = -1 != offsetDelimiterStart && METHOD_DELIMITER_DISPOSAL_BEFORE == delimiterDisposalMethod;
+                int offsetPrependDelimiterStart = offsetDelimiterStart;
+                int offsetPrependDelimiterEnd   = offsetDelimiterEnd;
+
+                offsetDelimiterStart    = delimiterMatcher.find(text, offsetItemStart, offsetLineEnd);
+                offsetDelimiterEnd      = delimiterMatcher.getMatchEnd();
+                delimiterDisposalMethod = delimiterMatcher.getDisposalMethod();
+                int offsetItemEnd = -1 == offsetDelimiterStart ? offsetLineEnd : offsetDelimiterStart;
+
+                // A known indent implies a preceding item (maybe empty): line separator before the current one
+                int lengthBeforeItem = exploded.length();
+                if (null != indent) {
+                    exploded.append('\n');
+                }
+                int offsetItem = exploded.length();
+
+                if (isDelimiterBefore) {
+                    exploded.append(text, offsetPrependDelimiterStart, offsetPrependDelimiterEnd);
+                }
+                exploded.append(text, offsetItemStart, offsetItemEnd);
+                if (-1 != offsetDelimiterStart && METHOD_DELIMITER_DISPOSAL_AFTER == delimiterDisposalMethod) {
+                    exploded.append(text, offsetDelimiterStart, offsetDelimiterEnd);
+                }
+
+                boolean isDropped = false;
+                if (trimWhitespace) {
+                    UtilsTextual.trim(exploded, offsetItem);
+                    if (exploded.length() == offsetItem) {
+                        // Drop empty item
+                        exploded.setLength(lengthBeforeItem);
+                        isDropped = true;
+                    }
+                }
+                if (!isDropped) {
+                    if (null == indent) {
+                        // First item emitted, also if empty: its indent applies to all following ones
+                        indent = UtilsTextual.getLeadingWhitespace(exploded, offsetItem);
+                    } else if (exploded.length() > offsetItem && !UtilsTextual.startsWith(exploded, offsetItem, indent)) {
+                        exploded.insert(offsetItem, indent);
+                    }
+                }
+
+                if (-1 == offsetDelimiterStart) {
+                    break;
+                }
+                offsetItemStart = offsetDelimiterEnd;
+                if (isEndAfterDelimiter && offsetItemStart == offsetEnd) {
+                    // Item following the delimiter belongs to the next range
+                    break;
+                }
+            }
+
+            offsetLineStart = offsetLineEnd + 1;
+        }
+
+        return indent;
+    }
+}
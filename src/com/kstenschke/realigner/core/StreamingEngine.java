@@ -0,0 +1,460 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import com.kstenschke.realigner.utils.UtilsTextual;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Split and join of whole files too large to be held in memory, with the same results as SplitEngine / JoinEngine
+ * applied to all lines (a trailing line separator is kept, \r\n line separators are preserved).
+ * The input is read through memory-mapped windows and decoded into a bounded char buffer, the output is written
+ * through a buffered channel writer. Heap usage does not depend on the file size, only on the length of the
+ * longest run of whitespace (held back for trimming) and of the indent of the first split item.
+ */
+public class StreamingEngine {
+
+    // Size of memory-mapped input windows
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    // Maximum amount of bytes scanned for the first line separator
+    private static final int LINE_SEPARATOR_SCAN_SIZE = 16 * 1024 * 1024;
+
+    // Size of the buffer input is decoded into
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+    // Size of the output buffers (chars before encoding, bytes after encoding)
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * @param   input
+     * @param   output                  File to be (over)written
+     * @param   charset
+     * @param   delimiter               Must not contain line breaks
+     * @param   trimWhitespace
+     * @param   delimiterDisposalMethod Before/At/After
+     * @param   cancellation
+     * @throws  IOException
+     */
+    public static void split(Path input, Path output, Charset charset, String delimiter, boolean trimWhitespace, int delimiterDisposalMethod, Cancellation cancellation) throws IOException {
+        if (delimiter.isEmpty() || -1 != delimiter.indexOf('\n')) {
+            throw new IllegalArgumentException("Delimiter must not be empty or contain line breaks");
+        }
+        transform(input, output, charset, writer -> new SplitProcessor(writer, delimiter, trimWhitespace, delimiterDisposalMethod), cancellation);
+    }
+
+    /**
+     * @param   input
+     * @param   output      File to be (over)written
+     * @param   charset
+     * @param   glue
+     * @param   cancellation
+     * @throws  IOException
+     */
+    public static void join(Path input, Path output, Charset charset, String glue, Cancellation cancellation) throws IOException {
+        transform(input, output, charset, writer -> new JoinProcessor(writer, glue), cancellation);
+    }
+
+    private interface ProcessorFactory {
+        LineProcessor create(Writer writer);
+    }
+
+    private static void transform(Path input, Path output, Charset charset, ProcessorFactory processorFactory, Cancellation cancellation) throws IOException {
+        try (FileChannel inputChannel  = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = Channels.newWriter(outputChannel, charset.newEncoder(), OUTPUT_BUFFER_SIZE)
+        ) {
+            LineProcessor processor = processorFactory.create(writer);
+            CharsetDecoder decoder  = charset.newDecoder();
+            CharBuffer chars        = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+
+            long size     = inputChannel.size();
+            long position = 0;
+            processor.lineSeparator = detectLineSeparator(inputChannel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(LINE_SEPARATOR_SCAN_SIZE, size)));
+
+            while (position < size) {
+                long windowSize = Math.min(WINDOW_SIZE, size - position);
+                boolean isLastWindow = position + windowSize == size;
+                MappedByteBuffer window = inputChannel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+                // Bytes of a character straddling the window end stay unconsumed, the next window begins with them
+                CoderResult result;
+                do {
+                    cancellation.checkCanceled();
+                    result = decoder.decode(window, chars, isLastWindow);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    chars.flip();
+                    processor.process(chars);
+                    chars.clear();
+                } while (result.isOverflow());
+
+                if (0 == window.position()) {
+                    throw new IOException("Cannot decode input at byte " + position);
+                }
+                position += window.position();
+            }
+            if (size > 0) {
+                decoder.flush(chars);
+                chars.flip();
+                processor.process(chars);
+            }
+
+            processor.finish();
+        }
+    }
+
+    /**
+     * @param   bytes   Beginning of the input
+     * @return  String  "\r\n" if the first line break within the given bytes is preceded by "\r", otherwise "\n"
+     */
+    private static String detectLineSeparator(MappedByteBuffer bytes) {
+        for (int offset = 0; offset < bytes.limit(); offset++) {
+            if ('\n' == bytes.get(offset)) {
+                return offset > 0 && '\r' == bytes.get(offset - 1) ? "\r\n" : "\n";
+            }
+        }
+
+        return "\n";
+    }
+
+    /**
+     * Receives the decoded input char by char, resolves line separators: lines are handed on lazily, so a
+     * trailing line separator can be told apart
+     */
+    private abstract static class LineProcessor {
+
+        private final Writer writer;
+        private final char[] output = new char[OUTPUT_BUFFER_SIZE];
+        private int outputLength = 0;
+
+        String lineSeparator = "\n";
+
+        private boolean isLineSeparatorPending = false;
+        private boolean isCarriageReturnPending = false;
+
+        LineProcessor(Writer writer) {
+            this.writer = writer;
+        }
+
+        void process(CharBuffer chars) throws IOException {
+            boolean isCrLf = 2 == lineSeparator.length();
+
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (isLineSeparatorPending) {
+                    isLineSeparatorPending = false;
+                    onLineSeparator();
+                }
+                if (isCarriageReturnPending) {
+                    isCarriageReturnPending = false;
+                    if ('\n' != c) {
+                        onChar('\r');
+                    }
+                }
+
+                if ('\n' == c) {
+                    isLineSeparatorPending = true;
+                } else if ('\r' == c && isCrLf) {
+                    isCarriageReturnPending = true;
+                } else {
+                    onChar(c);
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            if (isCarriageReturnPending) {
+                onChar('\r');
+            }
+            onEnd();
+            if (isLineSeparatorPending) {
+                write(lineSeparator);
+            }
+            writer.write(output, 0, outputLength);
+        }
+
+        void write(char c) throws IOException {
+            if (outputLength == output.length) {
+                writer.write(output, 0, outputLength);
+                outputLength = 0;
+            }
+            output[outputLength++] = c;
+        }
+
+        void write(CharSequence chars) throws IOException {
+            for (int i = 0; i < chars.length(); i++) {
+                write(chars.charAt(i));
+            }
+        }
+
+        abstract void onChar(char c) throws IOException;
+
+        abstract void onLineSeparator() throws IOException;
+
+        /**
+         * End of the last line (w/o trailing line separator)
+         */
+        abstract void onEnd() throws IOException;
+    }
+
+    /**
+     * First line is kept as is, all following lines are trimmed, line separators are replaced by the glue
+     */
+    private static class JoinProcessor extends LineProcessor {
+
+        private final String glue;
+
+        private boolean isFirstLine = true;
+        private boolean isLineContentStarted = false;
+        private final StringBuilder pendingWhitespace = new StringBuilder();
+
+        JoinProcessor(Writer writer, String glue) {
+            super(writer);
+            this.glue = glue;
+        }
+
+        @Override
+        void onChar(char c) throws IOException {
+            if (isFirstLine) {
+                write(c);
+            } else if (c <= ' ') {
+                if (isLineContentStarted) {
+                    pendingWhitespace.append(c);
+                }
+            } else {
+                if (pendingWhitespace.length() > 0) {
+                    write(pendingWhitespace);
+                    pendingWhitespace.setLength(0);
+                }
+                write(c);
+                isLineContentStarted = true;
+            }
+        }
+
+        @Override
+        void onLineSeparator() throws IOException {
+            pendingWhitespace.setLength(0);
+            write(glue);
+            isFirstLine          = false;
+            isLineContentStarted = false;
+        }
+
+        @Override
+        void onEnd() {
+            pendingWhitespace.setLength(0);
+        }
+    }
+
+    /**
+     * Splits each line into items at the delimiter, matching the delimiter across chunk boundaries (Knuth-Morris-Pratt):
+     * characters of a partial match are held back until the match completes or fails
+     */
+    private static class SplitProcessor extends LineProcessor {
+
+        private final String delimiter;
+        private final int[] failure;
+        private final boolean trimWhitespace;
+        private final boolean isDelimiterBefore;
+        private final boolean isDelimiterAfter;
+
+        // Indent of the first output line, applied to all following ones
+        private String indent = null;
+        private boolean hasOutput = false;
+
+        private int amountMatched = 0;
+
+        // Per item: chars passed on so far, head held back until indent is known / compared, whitespace held back for trimming
+        private int itemLength = 0;
+        private boolean isHeadWritten = false;
+        private final StringBuilder head = new StringBuilder();
+        private final StringBuilder pendingWhitespace = new StringBuilder();
+
+        SplitProcessor(Writer writer, String delimiter, boolean trimWhitespace, int delimiterDisposalMethod) {
+            super(writer);
+            this.delimiter         = delimiter;
+            this.failure           = getFailureTable(delimiter);
+            this.trimWhitespace    = trimWhitespace;
+            this.isDelimiterBefore = SplitEngine.METHOD_DELIMITER_DISPOSAL_BEFORE == delimiterDisposalMethod;
+            this.isDelimiterAfter  = SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER == delimiterDisposalMethod;
+        }
+
+        /**
+         * @param   pattern
+         * @return  int[]   Per prefix length - 1: length of the longest proper prefix of the pattern that is also a suffix
+         */
+        private static int[] getFailureTable(String pattern) {
+            int[] failure = new int[pattern.length()];
+            int length = 0;
+            for (int i = 1; i < pattern.length(); i++) {
+                while (length > 0 && pattern.charAt(i) != pattern.charAt(length)) {
+                    length = failure[length - 1];
+                }
+                if (pattern.charAt(i) == pattern.charAt(length)) {
+                    length++;
+                }
+                failure[i] = length;
+            }
+
+            return failure;
+        }
+
+        @Override
+        void onChar(char c) throws IOException {
+            while (amountMatched > 0 && c != delimiter.charAt(amountMatched)) {
+                // Held back chars that cannot be part of a match anymore are item content
+                int amountKept = failure[amountMatched - 1];
+                for (int i = 0; i < amountMatched - amountKept; i++) {
+                    onItemChar(delimiter.charAt(i));
+                }
+                amountMatched = amountKept;
+            }
+
+            if (c == delimiter.charAt(amountMatched)) {
+                amountMatched++;
+                if (amountMatched == delimiter.length()) {
+                    amountMatched = 0;
+                    endItem(true);
+                    if (isDelimiterBefore) {
+                        for (int i = 0; i < delimiter.length(); i++) {
+                            onItemChar(delimiter.charAt(i));
+                        }
+                    }
+                }
+                return;
+            }
+            onItemChar(c);
+        }
+
+        @Override
+        void onLineSeparator() throws IOException {
+            flushMatched();
+            endItem(false);
+        }
+
+        @Override
+        void onEnd() throws IOException {
+            flushMatched();
+            endItem(false);
+        }
+
+        private void flushMatched() throws IOException {
+            for (int i = 0; i < amountMatched; i++) {
+                onItemChar(delimiter.charAt(i));
+            }
+            amountMatched = 0;
+        }
+
+        /**
+         * @param   c   Char of the current item, trimmed if configured
+         */
+        private void onItemChar(char c) throws IOException {
+            if (trimWhitespace && c <= ' ') {
+                if (itemLength > 0) {
+                    pendingWhitespace.append(c);
+                }
+                return;
+            }
+            if (pendingWhitespace.length() > 0) {
+                for (int i = 0; i < pendingWhitespace.length(); i++) {
+                    writeItemChar(pendingWhitespace.charAt(i));
+                }
+                pendingWhitespace.setLength(0);
+            }
+            writeItemChar(c);
+        }
+
+        private void writeItemChar(char c) throws IOException {
+            itemLength++;
+            if (isHeadWritten) {
+                write(c);
+                return;
+            }
+
+            head.append(c);
+            if (null == indent) {
+                if (!Character.isWhitespace(c)) {
+                    indent = head.substring(0, head.length() - 1);
+                    writeHead();
+                }
+            } else if (head.length() >= indent.length()) {
+                writeHead();
+            }
+        }
+
+        /**
+         * Write the line separator and the held back head of the item, prepended by the indent if it does not start with it
+         */
+        private void writeHead() throws IOException {
+            if (hasOutput) {
+                write(lineSeparator);
+            }
+            if (!UtilsTextual.startsWith(head, 0, indent)) {
+                write(indent);
+            }
+            write(head);
+            head.setLength(0);
+
+            hasOutput     = true;
+            isHeadWritten = true;
+        }
+
+        /**
+         * @param   isEndedByDelimiter
+         */
+        private void endItem(boolean isEndedByDelimiter) throws IOException {
+            if (isDelimiterAfter && isEndedByDelimiter) {
+                for (int i = 0; i < delimiter.length(); i++) {
+                    onItemChar(delimiter.charAt(i));
+                }
+            }
+            pendingWhitespace.setLength(0);
+
+            if (!isHeadWritten) {
+                if (head.length() > 0) {
+                    if (null == indent) {
+                        // Whitespace-only item
+                        indent = head.toString();
+                    }
+                    writeHead();
+                } else if (!trimWhitespace) {
+                    // Empty item, also if leading: its line is kept
+                    if (hasOutput) {
+                        write(lineSeparator);
+                    } else if (null == indent) {
+                        indent = "";
+                    }
+                    hasOutput = true;
+                }
+            }
+
+            itemLength    = 0;
+            isHeadWritten = false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive substring search over a list of texts, via a prebuilt index of their n-grams (n = 1..3).
+ * Queries of up to three characters are answered by a single posting list, longer queries verify the candidates of
+ * their rarest trigram only
+ */
+public class SubstringIndex {
+
+    private static final int GRAM_LENGTH_MAX = 3;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final String[] texts;
+
+    // N-gram => ascending IDs (indices) of the texts containing it
+    private final Map<String, int[]> postings = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param texts     Texts to be searched, IDs are their indices
+     */
+    public SubstringIndex(List<String> texts) {
+        this.texts = new String[texts.size()];
+
+        Map<String, int[]> postingsBuilt = new HashMap<>();
+        for (int id = 0; id < this.texts.length; id++) {
+            String text = texts.get(id).toLowerCase(Locale.ROOT);
+            this.texts[id] = text;
+
+            for (int offset = 0; offset < text.length(); offset++) {
+                for (int gramLength = 1; gramLength <= GRAM_LENGTH_MAX && offset + gramLength <= text.length(); gramLength++) {
+                    addPosting(postingsBuilt, text.substring(offset, offset + gramLength), id);
+                }
+            }
+        }
+
+        // Trim posting arrays: slot 0 holds the amount of IDs
+        for (Map.Entry<String, int[]> posting : postingsBuilt.entrySet()) {
+            int[] ids = posting.getValue();
+            postings.put(posting.getKey(), Arrays.copyOfRange(ids, 1, ids[0] + 1));
+        }
+    }
+
+    /**
+     * @param   postings
+     * @param   gram
+     * @param   id          ID of the text containing the gram, IDs are added in ascending order
+     */
+    private static void addPosting(Map<String, int[]> postings, String gram, int id) {
+        int[] ids = postings.get(gram);
+        if (null == ids) {
+            postings.put(gram, new int[]{1, id, 0, 0});
+            return;
+        }
+
+        int amountIds = ids[0];
+        if (ids[amountIds] == id) {
+            return;
+        }
+        if (amountIds + 1 == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            postings.put(gram, ids);
+        }
+        ids[amountIds + 1] = id;
+        ids[0] = amountIds + 1;
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * @param   query
+     * @return  int[]   Ascending IDs of all texts containing the query (case-insensitive), empty query: all IDs
+     */
+    public int[] find(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            int[] ids = new int[texts.length];
+            Arrays.setAll(ids, id -> id);
+            return ids;
+        }
+
+        int gramLength = Math.min(needle.length(), GRAM_LENGTH_MAX);
+        int[] candidates = null;
+        for (int offset = 0; offset + gramLength <= needle.length(); offset++) {
+            int[] ids = postings.get(needle.substring(offset, offset + gramLength));
+            if (null == ids) {
+                return NO_IDS;
+            }
+            if (null == candidates || ids.length < candidates.length) {
+                candidates = ids;
+            }
+        }
+        if (needle.length() <= GRAM_LENGTH_MAX) {
+            return candidates.clone();
+        }
+
+        int[] ids = new int[candidates.length];
+        int amountIds = 0;
+        for (int id : candidates) {
+            if (texts[id].contains(needle)) {
+                ids[amountIds++] = id;
+            }
+        }
+
+        return Arrays.copyOf(ids, amountIds);
+    }
+}
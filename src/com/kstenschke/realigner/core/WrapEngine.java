@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.core;
+
+import com.kstenschke.realigner.utils.UtilsTextual;
+
+/**
+ * Wrapping and unwrapping of text ranges and lines, independent from the IDE
+ */
+public class WrapEngine {
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   prefix
+     * @param   postfix
+     * @param   cancellation
+     * @return  EditPlan    Insertions of prefix and postfix around each of the given lines
+     */
+    public static EditPlan wrapLines(LineDocument document, int lineNumberStart, int lineNumberEnd, String prefix, String postfix, Cancellation cancellation) {
+        EditPlan editPlan = new EditPlan();
+        addLinesEdits(editPlan, document, lineNumberStart, lineNumberEnd, prefix, postfix, false, cancellation);
+
+        return editPlan;
+    }
+
+    /**
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   prefix
+     * @param   postfix
+     * @param   cancellation
+     * @return  EditPlan    Removals of prefix and postfix from each of the given lines that begins / ends with them
+     */
+    public static EditPlan unwrapLines(LineDocument document, int lineNumberStart, int lineNumberEnd, String prefix, String postfix, Cancellation cancellation) {
+        EditPlan editPlan = new EditPlan();
+        addLinesEdits(editPlan, document, lineNumberStart, lineNumberEnd, prefix, postfix, true, cancellation);
+
+        return editPlan;
+    }
+
+    /**
+     * Add edits to un/wrap each of the given lines
+     *
+     * @param   editPlan
+     * @param   document
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   prefix
+     * @param   postfix
+     * @param   isUnwrap
+     * @param   cancellation
+     */
+    public static void addLinesEdits(EditPlan editPlan, LineDocument document, int lineNumberStart, int lineNumberEnd, String prefix, String postfix, boolean isUnwrap, Cancellation cancellation) {
+        LineIndex lineIndex = LineIndex.of(document, lineNumberStart, lineNumberEnd, cancellation);
+        CharSequence text   = lineIndex.getCharsSequence();
+        for (int lineNumber = lineNumberStart; lineNumber <= lineNumberEnd; lineNumber++) {
+            cancellation.checkCanceled();
+            addRangeEdits(editPlan, text, lineIndex.getLineStartOffset(lineNumber), lineIndex.getLineEndOffset(lineNumber), prefix, postfix, isUnwrap);
+        }
+    }
+
+    /**
+     * Add edits to wrap the given range into prefix and postfix, or to remove them from its beginning / ending
+     *
+     * @param   editPlan
+     * @param   text
+     * @param   offsetStart
+     * @param   offsetEnd
+     * @param   prefix
+     * @param   postfix
+     * @param   isUnwrap
+     */
+    public static void addRangeEdits(EditPlan editPlan, CharSequence text, int offsetStart, int offsetEnd, String prefix, String postfix, boolean isUnwrap) {
+        if (!isUnwrap) {
+            editPlan.insert(offsetStart, prefix);
+            editPlan.insert(offsetEnd, postfix);
+            return;
+        }
+
+        if (UtilsTextual.startsWith(text, offsetStart, prefix) && offsetStart + prefix.length() <= offsetEnd) {
+            editPlan.delete(offsetStart, offsetStart + prefix.length());
+            offsetStart += prefix.length();
+        }
+        if (offsetEnd - postfix.length() >= offsetStart && UtilsTextual.startsWith(text, offsetEnd - postfix.length(), postfix)) {
+            editPlan.delete(offsetEnd - postfix.length(), offsetEnd);
+        }
+    }
+}
@@ -22,7 +22,8 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 
 /**
- * ComponentListener for dialogs - storing their position and size
+ * ComponentListener for dialogs - storing their position and size.
+ * Moves only update the in-memory preferences, they are written when the dialog is closed
  */
 public class ComponentListenerDialog implements ComponentListener {
 
@@ -53,5 +54,6 @@ public class ComponentListenerDialog implements ComponentListener {
 
     @Override
     public void componentHidden(ComponentEvent e) {
+        Preferences.flush();
     }
 }
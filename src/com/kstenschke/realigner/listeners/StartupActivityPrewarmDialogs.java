@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.listeners;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.kstenschke.realigner.OptionsDialogs;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+
+/**
+ * Prewarm the options dialogs on the event dispatch thread once a project is opened, while the IDE is idle
+ */
+public class StartupActivityPrewarmDialogs implements StartupActivity {
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        Application application = ApplicationManager.getApplication();
+        if (application.isHeadlessEnvironment() || application.isUnitTestMode() || GraphicsEnvironment.isHeadless()) {
+            return;
+        }
+
+        // Dialogs are application-wide: repeated calls (per opened project) find them created already
+        application.invokeLater(OptionsDialogs::prewarm, ModalityState.NON_MODAL);
+    }
+}
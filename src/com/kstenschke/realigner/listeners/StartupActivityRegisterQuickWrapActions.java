@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.listeners;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.kstenschke.realigner.actions.QuickWrapActions;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Register the actions of the stored quick-wraps once a project is opened, so their keyboard shortcuts work
+ */
+public class StartupActivityRegisterQuickWrapActions implements StartupActivity {
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        // Repeated calls (per opened project) register only actions missing yet
+        QuickWrapActions.init();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.util.TextRange;
+import com.kstenschke.realigner.core.EditPlan;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Document transformation split into phases, so the edits can be computed off the EDT and applied afterwards
+ */
+public interface EditOperation {
+
+    /**
+     * Capture the editor state (carets, selections) the edits are to be computed for. Called on the EDT
+     */
+    void prepare();
+
+    /**
+     * @return  TextRange   Range of the document affected by the operation, as captured by prepare()
+     */
+    @NotNull
+    TextRange getAffectedRange();
+
+    /**
+     * Compute the edits. Called within a read action, typically on a pooled thread.
+     * Long running loops should call ProgressManager.checkCanceled() regularly
+     *
+     * @param   text        Immutable snapshot of the document text
+     * @return  EditPlan    Edits to be applied, or null if there is nothing to be done
+     */
+    @Nullable
+    EditPlan computeEditPlan(@NotNull CharSequence text);
+
+    /**
+     * Apply the computed edits. Called within a write action on the EDT, while the document is still unchanged
+     * since the edits were computed
+     *
+     * @param   editPlan
+     */
+    void apply(@NotNull EditPlan editPlan);
+
+    /**
+     * Called on the EDT when no edit plan was computed
+     */
+    default void onNothingToApply() {
+    }
+}
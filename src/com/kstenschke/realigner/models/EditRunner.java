@@ -0,0 +1,195 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.command.UndoConfirmationPolicy;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.kstenschke.realigner.Preferences;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.resources.StaticTexts;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+/**
+ * Runs an edit operation: computes its edits within a background read action on an immutable snapshot of the
+ * document, then applies them within a write command on the EDT. If the document was modified in the meantime,
+ * the edits are recomputed, up to a few times. Large operations are run as cancelable task with a progress indicator
+ */
+public class EditRunner {
+
+    // Amount of background computations to be discarded due to concurrent modification, before giving up
+    private static final int MAX_BACKGROUND_ATTEMPTS = 3;
+
+    private final Project project;
+    private final Document document;
+    private final String commandName;
+    private final EditOperation operation;
+
+    private int attempts = 0;
+
+    // Stamp of the document when the operation was prepared (caret and selection offsets captured)
+    private volatile long modificationStamp;
+    private volatile boolean isPreparedStale;
+    private volatile EditPlan editPlan;
+
+    /**
+     * Constructor
+     *
+     * @param project
+     * @param document
+     * @param commandName   Name of the undoable command
+     * @param operation
+     */
+    public EditRunner(Project project, Document document, String commandName, EditOperation operation) {
+        this.project     = project;
+        this.document    = document;
+        this.commandName = commandName;
+        this.operation   = operation;
+    }
+
+    /**
+     * Start the operation. To be called on the EDT
+     */
+    public void run() {
+        operation.prepare();
+        modificationStamp = document.getModificationStamp();
+        attempts++;
+
+        if (isLargeOperation()) {
+            runWithProgress();
+        } else {
+            runInBackground();
+        }
+    }
+
+    /**
+     * @return  boolean     Does the operation affect more lines or characters than configured for running w/o progress?
+     */
+    private boolean isLargeOperation() {
+        TextRange affectedRange = operation.getAffectedRange();
+        if (affectedRange.getLength() >= Preferences.getProgressMinChars()) {
+            return true;
+        }
+        int amountLines = document.getLineNumber(affectedRange.getEndOffset()) - document.getLineNumber(affectedRange.getStartOffset()) + 1;
+
+        return amountLines >= Preferences.getProgressMinLines();
+    }
+
+    private void runInBackground() {
+        Application application = ApplicationManager.getApplication();
+        application.executeOnPooledThread(() -> {
+            boolean isComputed = computeEditPlan(null);
+            application.invokeLater(isComputed ? this::applyEditPlan : this::retry);
+        });
+    }
+
+    /**
+     * Compute the edits within a backgroundable task, showing a progress indicator w/ cancel button.
+     * On cancel, nothing is applied: the document stays untouched
+     */
+    private void runWithProgress() {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, commandName, true) {
+            private boolean isComputed = false;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(true);
+                isComputed = computeEditPlan(indicator);
+            }
+
+            @Override
+            public void onSuccess() {
+                if (isComputed) {
+                    applyEditPlan();
+                } else {
+                    retry();
+                }
+            }
+        });
+    }
+
+    /**
+     * Compute the edits within a read action, that gives way to (and is then canceled by) pending write actions
+     *
+     * @param   indicator
+     * @return  boolean     Was the computation completed, on the document as it was prepared?
+     */
+    private boolean computeEditPlan(@Nullable ProgressIndicator indicator) {
+        isPreparedStale = false;
+
+        return ProgressManager.getInstance().runInReadActionWithWriteActionPriority(this::computeEditPlanOnSnapshot, indicator)
+            && !isPreparedStale;
+    }
+
+    private void computeEditPlanOnSnapshot() {
+        if (document.getModificationStamp() != modificationStamp) {
+            // Document changed after prepare(): its caret and selection offsets do not match the snapshot
+            isPreparedStale = true;
+            return;
+        }
+        editPlan = operation.computeEditPlan(document.getImmutableCharSequence());
+    }
+
+    /**
+     * Recompute the edits after their computation was interrupted or the document changed meanwhile
+     */
+    private void retry() {
+        if (null != project && project.isDisposed()) {
+            return;
+        }
+        if (attempts < MAX_BACKGROUND_ATTEMPTS) {
+            run();
+            return;
+        }
+
+        // Computing on the EDT instead would freeze the IDE for exactly the large operations being run in background
+        JOptionPane.showMessageDialog(null, StaticTexts.NOTIFICATION_CONCURRENT_MODIFICATION);
+    }
+
+    private void applyEditPlan() {
+        if (null != project && project.isDisposed()) {
+            return;
+        }
+        if (document.getModificationStamp() != modificationStamp) {
+            // Document changed since the edits were computed
+            retry();
+            return;
+        }
+
+        EditPlan plan = editPlan;
+        if (null == plan) {
+            operation.onNothingToApply();
+            return;
+        }
+
+        CommandProcessor.getInstance().executeCommand(
+                project,
+                () -> ApplicationManager.getApplication().runWriteAction(() -> operation.apply(plan)),
+                commandName,
+                null,
+                UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION);
+    }
+}
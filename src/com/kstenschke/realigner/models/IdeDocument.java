@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.DocumentUtil;
+import com.kstenschke.realigner.core.Cancellation;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.LineDocument;
+
+import java.util.List;
+
+/**
+ * Adapter of an IDE document to the line model of the text engines
+ */
+public class IdeDocument implements LineDocument {
+
+    // Cancellation of engine loops via the progress indicator of the current thread
+    public static final Cancellation CANCELLATION = ProgressManager::checkCanceled;
+
+    // Amount of edits from which on the document is switched into bulk mode while applying them
+    private static final int MIN_EDITS_BULK_MODE = 100;
+
+    private final Document document;
+    private final CharSequence text;
+
+    /**
+     * Constructor
+     *
+     * @param document
+     * @param text      Text of the document, typically its immutable snapshot
+     */
+    public IdeDocument(Document document, CharSequence text) {
+        this.document = document;
+        this.text     = text;
+    }
+
+    @Override
+    public CharSequence getCharsSequence() {
+        return text;
+    }
+
+    @Override
+    public int getTextLength() {
+        return text.length();
+    }
+
+    @Override
+    public int getLineCount() {
+        return document.getLineCount();
+    }
+
+    @Override
+    public int getLineNumber(int offset) {
+        return document.getLineNumber(offset);
+    }
+
+    @Override
+    public int getLineStartOffset(int lineNumber) {
+        return document.getLineStartOffset(lineNumber);
+    }
+
+    @Override
+    public int getLineEndOffset(int lineNumber) {
+        return document.getLineEndOffset(lineNumber);
+    }
+
+    /**
+     * Apply all edits to the given document in one bulk update, back to front so offsets of pending edits stay valid
+     *
+     * @param   document
+     * @param   editPlan
+     */
+    public static void apply(Document document, EditPlan editPlan) {
+        List<EditPlan.Edit> sortedEdits = editPlan.getEdits();
+
+        DocumentUtil.executeInBulk(document, sortedEdits.size() >= MIN_EDITS_BULK_MODE, () -> {
+            for (int i = sortedEdits.size() - 1; i >= 0; i--) {
+                EditPlan.Edit edit = sortedEdits.get(i);
+                document.replaceString(edit.offsetStart, edit.offsetEnd, edit.text);
+            }
+        });
+    }
+}
@@ -15,34 +15,110 @@
  */
 package com.kstenschke.realigner.models;
 
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
-import com.kstenschke.realigner.utils.UtilsTextual;
-
-import java.util.List;
-
-public class Joiner {
-
-    public void joinLines(Document document, int lineNumberSelStart, int lineNumberSelEnd, String glue) {
-        int offsetStart;
-        int offsetEnd;
-        List<String> linesList = UtilsTextual.extractLines(document, lineNumberSelStart, lineNumberSelEnd);
-        int amountLines = linesList.size();
-        String linesStr = "";
-        for (int i = 0; i < amountLines; i++) {
-            linesStr = linesStr
-                    + (i > 0 ? linesList.get(i).trim() : linesList.get(i))
-                    + (i < (amountLines - 1) ? glue : "");
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.kstenschke.realigner.Preferences;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.JoinEngine;
+import com.kstenschke.realigner.core.MatchTimeoutException;
+import com.kstenschke.realigner.core.PatternCache;
+import com.kstenschke.realigner.resources.StaticTexts;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+public class Joiner implements EditOperation {
+
+    private final Project project;
+    private final Editor editor;
+    private final Document document;
+    private final String glue;
+    private final String linePattern;
+    private final long regexTimeoutMillis;
+
+    private int offsetSelStart;
+    private int offsetSelEnd;
+    private int lineNumberSelStart;
+    private int lineNumberSelEnd;
+
+    private boolean isRegexTimedOut = false;
+
+    /**
+     * Constructor
+     *
+     * @param project
+     * @param editor
+     * @param glue
+     * @param linePattern   Regular expression of lines to be joined to their preceding line (to be validated before,
+     *                      via PatternCache), empty: join all lines
+     */
+    public Joiner(Project project, Editor editor, String glue, String linePattern) {
+        this.project  = project;
+        this.editor   = editor;
+        this.document = editor.getDocument();
+        this.glue     = glue;
+
+        this.linePattern        = null == linePattern ? "" : linePattern;
+        this.regexTimeoutMillis = Preferences.getRegexTimeoutMillis();
+    }
+
+    /**
+     * Join the selected lines into one, glued by the glue string
+     */
+    public void joinLines() {
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_JOIN, this).run();
+    }
+
+    @Override
+    public void prepare() {
+        SelectionModel selectionModel = editor.getSelectionModel();
+        offsetSelStart = selectionModel.getSelectionStart();
+        offsetSelEnd   = selectionModel.getSelectionEnd();
+
+        lineNumberSelStart = document.getLineNumber(offsetSelStart);
+        lineNumberSelEnd   = document.getLineNumber(offsetSelEnd);
+        if (document.getLineStartOffset(lineNumberSelEnd) == offsetSelEnd) {
+            lineNumberSelEnd--;
+        }
+    }
+
+    @NotNull
+    @Override
+    public TextRange getAffectedRange() {
+        return new TextRange(offsetSelStart, offsetSelEnd);
+    }
+
+    @Override
+    public EditPlan computeEditPlan(@NotNull CharSequence text) {
+        IdeDocument ideDocument = new IdeDocument(document, text);
+        if (linePattern.isEmpty()) {
+            return JoinEngine.join(ideDocument, lineNumberSelStart, lineNumberSelEnd, glue, IdeDocument.CANCELLATION);
         }
 
-        // Remove newlines
-        String joinedLines = linesStr.replaceAll("(\\n)+", "");
+        isRegexTimedOut = false;
+        try {
+            return JoinEngine.joinMatchingLines(ideDocument, lineNumberSelStart, lineNumberSelEnd,
+                    glue, PatternCache.get(linePattern, 0), regexTimeoutMillis, IdeDocument.CANCELLATION);
+        } catch (MatchTimeoutException e) {
+            isRegexTimedOut = true;
+            return null;
+        }
+    }
 
-        // Replace the full lines with themselves joined
-        offsetStart = document.getLineStartOffset(lineNumberSelStart);
-        offsetEnd   = document.getLineEndOffset(lineNumberSelEnd);
+    @Override
+    public void apply(@NotNull EditPlan editPlan) {
+        IdeDocument.apply(document, editPlan);
+    }
 
-        ApplicationManager.getApplication().runWriteAction(
-                () -> document.replaceString(offsetStart, offsetEnd, joinedLines));
+    @Override
+    public void onNothingToApply() {
+        if (!linePattern.isEmpty()) {
+            JOptionPane.showMessageDialog(editor.getComponent(), isRegexTimedOut
+                    ? StaticTexts.NOTIFICATION_REGEX_TIMEOUT
+                    : StaticTexts.NOTIFICATION_JOIN_NO_LINES_MATCHING);
+        }
     }
 }
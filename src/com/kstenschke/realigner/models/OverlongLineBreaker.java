@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.OverlongLineEngine;
+import com.kstenschke.realigner.resources.StaticTexts;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+public class OverlongLineBreaker implements EditOperation {
+
+    private final Project project;
+    private final Editor editor;
+    private final Document document;
+
+    private int rightMargin;
+    private int tabSize;
+
+    /**
+     * Constructor
+     *
+     * @param project
+     * @param editor
+     */
+    public OverlongLineBreaker(Project project, Editor editor) {
+        this.project  = project;
+        this.editor   = editor;
+        this.document = editor.getDocument();
+    }
+
+    /**
+     * Break all lines of the document that exceed the right margin of the editor
+     */
+    public void breakOverlongLines() {
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_BREAK_OVERLONG_LINES, this).run();
+    }
+
+    @Override
+    public void prepare() {
+        rightMargin = editor.getSettings().getRightMargin(project);
+        tabSize     = WidthMetrics.getTabSize(project, editor);
+    }
+
+    @NotNull
+    @Override
+    public TextRange getAffectedRange() {
+        return new TextRange(0, document.getTextLength());
+    }
+
+    @Override
+    public EditPlan computeEditPlan(@NotNull CharSequence text) {
+        return OverlongLineEngine.breakOverlongLines(new IdeDocument(document, text), rightMargin, tabSize, IdeDocument.CANCELLATION);
+    }
+
+    @Override
+    public void apply(@NotNull EditPlan editPlan) {
+        IdeDocument.apply(document, editPlan);
+    }
+
+    @Override
+    public void onNothingToApply() {
+        JOptionPane.showMessageDialog(editor.getComponent(), String.format(StaticTexts.NOTIFICATION_NO_OVERLONG_LINES, rightMargin));
+    }
+}
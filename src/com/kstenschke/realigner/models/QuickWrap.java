@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.kstenschke.realigner.core.Frecency;
+
+/**
+ * Quick-wrap button: label, wrap LHS and RHS strings and usage statistics. Bean, serialized by the IDE within QuickWrapStore
+ */
+public class QuickWrap {
+
+    private String label   = "";
+    private String prefix  = "";
+    private String postfix = "";
+
+    private int useCount;
+    private long lastUsedMillis;
+
+    // Frecency score as of the last use (see core.Frecency)
+    private double score;
+
+    // Order of insertion into the store, ranks unused quick-wraps. Not serialized (no accessors)
+    long sequence;
+
+    /**
+     * Constructor, used by the serializer
+     */
+    public QuickWrap() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param label
+     * @param prefix     Wrap LHS string
+     * @param postfix    Wrap RHS string
+     */
+    public QuickWrap(String label, String prefix, String postfix) {
+        this.label   = label;
+        this.prefix  = prefix;
+        this.postfix = postfix;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = null == label ? "" : label;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = null == prefix ? "" : prefix;
+    }
+
+    public String getPostfix() {
+        return postfix;
+    }
+
+    public void setPostfix(String postfix) {
+        this.postfix = null == postfix ? "" : postfix;
+    }
+
+    public int getUseCount() {
+        return useCount;
+    }
+
+    public void setUseCount(int useCount) {
+        this.useCount = useCount;
+    }
+
+    public long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    public void setLastUsedMillis(long lastUsedMillis) {
+        this.lastUsedMillis = lastUsedMillis;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    /**
+     * @return  double  Frecency rank, comparable to that of other quick-wraps
+     */
+    public double getRank() {
+        return Frecency.getRank(score, lastUsedMillis);
+    }
+
+    /**
+     * Record a use at the given time
+     *
+     * @param nowMillis
+     */
+    void addUse(long nowMillis) {
+        score          = Frecency.addUse(score, lastUsedMillis, nowMillis);
+        lastUsedMillis = nowMillis;
+        useCount++;
+    }
+
+    /**
+     * Take over usage statistics of the given quick-wrap, e.g. when replacing it
+     *
+     * @param quickWrap
+     */
+    void copyUsage(QuickWrap quickWrap) {
+        useCount       = quickWrap.useCount;
+        lastUsedMillis = quickWrap.lastUsedMillis;
+        score          = quickWrap.score;
+    }
+}
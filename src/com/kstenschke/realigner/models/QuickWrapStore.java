@@ -0,0 +1,259 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.kstenschke.realigner.utils.UtilsQuickWrapsConfig;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Application service persisting the quick-wrap buttons as typed state. The buttons are held in memory, indexed by
+ * label and ranked by frecency of their use (see core.Frecency), the IDE serializes them when saving settings.
+ * The custom serialized config string of older versions is migrated on first access
+ */
+@State(name = "RealignerQuickWraps", storages = @Storage("realigner.xml"))
+public class QuickWrapStore implements PersistentStateComponent<QuickWrapStore.QuickWrapsState> {
+
+    // Key of the custom serialized config string (see UtilsQuickWrapsConfig) of older versions
+    @NonNls
+    private static final String PROPERTY_LEGACY_WRAP_BUTTONS = "";
+
+    /**
+     * Persisted state
+     */
+    public static class QuickWrapsState {
+        public List<QuickWrap> quickWraps = new ArrayList<>();
+        public boolean isLegacyConfigMigrated = false;
+    }
+
+    // Most frecently used first, never used ones in order of insertion
+    private static final Comparator<QuickWrap> RANKING = Comparator
+            .comparingDouble(QuickWrap::getRank).reversed()
+            .thenComparingLong(quickWrap -> quickWrap.sequence);
+
+    // Quick-wraps in order of insertion
+    private QuickWrapsState state = new QuickWrapsState();
+
+    private final Map<String, QuickWrap> quickWrapsByLabel = new HashMap<>();
+    private final TreeSet<QuickWrap> quickWrapsRanked      = new TreeSet<>(RANKING);
+    private long nextSequence = 0;
+
+    // Snapshot of the ranking for access by index, rebuilt lazily after changes
+    private List<QuickWrap> rankedSnapshot = null;
+
+    // Notified when quick-wraps are added or removed (not on use)
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public static QuickWrapStore getInstance() {
+        QuickWrapStore store = ServiceManager.getService(QuickWrapStore.class);
+        store.migrateLegacyConfig();
+
+        return store;
+    }
+
+    @NotNull
+    @Override
+    public QuickWrapsState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull QuickWrapsState state) {
+        this.state = state;
+        if (null == state.quickWraps) {
+            state.quickWraps = new ArrayList<>();
+        }
+
+        List<QuickWrap> quickWraps = new ArrayList<>(state.quickWraps);
+        state.quickWraps.clear();
+        quickWrapsByLabel.clear();
+        quickWrapsRanked.clear();
+        rankedSnapshot = null;
+        for (QuickWrap quickWrap : quickWraps) {
+            if (!quickWrapsByLabel.containsKey(quickWrap.getLabel())) {
+                insert(quickWrap);
+            }
+        }
+        fireChanged();
+    }
+
+    /**
+     * @return  List    All quick-wraps, in order of their buttons: ranked by frecency of use
+     */
+    public List<QuickWrap> getQuickWraps() {
+        if (null == rankedSnapshot) {
+            rankedSnapshot = Collections.unmodifiableList(new ArrayList<>(quickWrapsRanked));
+        }
+
+        return rankedSnapshot;
+    }
+
+    /**
+     * @param   index
+     * @return  QuickWrap   Quick-wrap of the given index, or null
+     */
+    @Nullable
+    public QuickWrap get(int index) {
+        List<QuickWrap> quickWraps = getQuickWraps();
+
+        return index >= 0 && index < quickWraps.size() ? quickWraps.get(index) : null;
+    }
+
+    /**
+     * @param   label
+     * @return  QuickWrap   Quick-wrap with the given label, or null
+     */
+    @Nullable
+    public QuickWrap get(String label) {
+        return quickWrapsByLabel.get(label);
+    }
+
+    public int size() {
+        return state.quickWraps.size();
+    }
+
+    /**
+     * Store given quick-wrap, replacing a pre-existing one with the same label (taking over its usage statistics)
+     *
+     * @param   quickWrap
+     */
+    public void add(QuickWrap quickWrap) {
+        QuickWrap replaced = quickWrapsByLabel.get(quickWrap.getLabel());
+        if (null != replaced) {
+            removeQuietly(replaced.getLabel());
+            quickWrap.copyUsage(replaced);
+        }
+        insert(quickWrap);
+        fireChanged();
+    }
+
+    /**
+     * @param   label
+     * @return  boolean     Was a quick-wrap with the given label stored?
+     */
+    public boolean remove(String label) {
+        if (!removeQuietly(label)) {
+            return false;
+        }
+        fireChanged();
+
+        return true;
+    }
+
+    /**
+     * @param   changeListener  To be run whenever quick-wraps are added or removed
+     */
+    public void addChangeListener(Runnable changeListener) {
+        changeListeners.add(changeListener);
+    }
+
+    /**
+     * Record a use of the quick-wrap with the given label, re-rank it: O(log n), other quick-wraps remain untouched
+     *
+     * @param   label
+     * @param   nowMillis
+     */
+    public void recordUse(String label, long nowMillis) {
+        QuickWrap quickWrap = quickWrapsByLabel.get(label);
+        if (null == quickWrap) {
+            return;
+        }
+
+        // Re-insert, as the ranking of the tree must not change while the item is contained
+        quickWrapsRanked.remove(quickWrap);
+        quickWrap.addUse(nowMillis);
+        quickWrapsRanked.add(quickWrap);
+        rankedSnapshot = null;
+    }
+
+    /**
+     * @param   label
+     * @return  boolean     Was a quick-wrap with the given label stored?
+     */
+    private boolean removeQuietly(String label) {
+        QuickWrap quickWrap = quickWrapsByLabel.remove(label);
+        if (null == quickWrap) {
+            return false;
+        }
+        quickWrapsRanked.remove(quickWrap);
+        state.quickWraps.remove(quickWrap);
+        rankedSnapshot = null;
+
+        return true;
+    }
+
+    private void fireChanged() {
+        for (Runnable changeListener : changeListeners) {
+            changeListener.run();
+        }
+    }
+
+    /**
+     * @param   quickWrap   Quick-wrap with a label not stored yet
+     */
+    private void insert(QuickWrap quickWrap) {
+        quickWrap.sequence = nextSequence++;
+
+        state.quickWraps.add(quickWrap);
+        quickWrapsByLabel.put(quickWrap.getLabel(), quickWrap);
+        quickWrapsRanked.add(quickWrap);
+        rankedSnapshot = null;
+    }
+
+    /**
+     * Convert the custom serialized quick-wraps config of older versions into typed state, once
+     */
+    private void migrateLegacyConfig() {
+        if (state.isLegacyConfigMigrated) {
+            return;
+        }
+        state.isLegacyConfigMigrated = true;
+
+        PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
+        String itemsConfig = propertiesComponent.getValue(PROPERTY_LEGACY_WRAP_BUTTONS);
+        if (null == itemsConfig || itemsConfig.isEmpty()) {
+            return;
+        }
+
+        Object[] labels    = UtilsQuickWrapsConfig.getAllButtonAttributesByType(itemsConfig, "WBLABEL");
+        Object[] prefixes  = UtilsQuickWrapsConfig.getAllButtonAttributesByType(itemsConfig, "WBPREFIX");
+        Object[] postfixes = UtilsQuickWrapsConfig.getAllButtonAttributesByType(itemsConfig, "WBPOSTFIX");
+        int amountButtons  = Math.min(labels.length, Math.min(prefixes.length, postfixes.length));
+
+        for (int i = 0; i < amountButtons; i++) {
+            String label = labels[i].toString();
+            if (!label.isEmpty() && null == get(label)) {
+                add(new QuickWrap(label, prefixes[i].toString(), postfixes[i].toString()));
+            }
+        }
+        propertiesComponent.unsetValue(PROPERTY_LEGACY_WRAP_BUTTONS);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.LineView;
+import com.kstenschke.realigner.core.ReflowEngine;
+import com.kstenschke.realigner.resources.StaticTexts;
+import org.jetbrains.annotations.NotNull;
+
+public class Reflower implements EditOperation {
+
+    private final Project project;
+    private final Editor editor;
+    private final Document document;
+
+    private final int width;
+    private final boolean isOptimalFit;
+
+    private int tabSize;
+    private int lineNumberStart;
+    private int lineNumberEnd;
+
+    /**
+     * Constructor
+     *
+     * @param project
+     * @param editor
+     * @param width         Maximum line width in columns
+     * @param isOptimalFit  Minimize raggedness instead of filling lines greedily?
+     */
+    public Reflower(Project project, Editor editor, int width, boolean isOptimalFit) {
+        this.project  = project;
+        this.editor   = editor;
+        this.document = editor.getDocument();
+
+        this.width        = width;
+        this.isOptimalFit = isOptimalFit;
+    }
+
+    /**
+     * Reflow the lines touched by the selection, or the paragraph containing the caret
+     */
+    public void reflow() {
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_REFLOW, this).run();
+    }
+
+    @Override
+    public void prepare() {
+        tabSize = WidthMetrics.getTabSize(project, editor);
+
+        SelectionModel selectionModel = editor.getSelectionModel();
+        if (selectionModel.hasSelection()) {
+            lineNumberStart = document.getLineNumber(selectionModel.getSelectionStart());
+            lineNumberEnd   = document.getLineNumber(selectionModel.getSelectionEnd());
+            if (lineNumberEnd > lineNumberStart && document.getLineStartOffset(lineNumberEnd) == selectionModel.getSelectionEnd()) {
+                lineNumberEnd--;
+            }
+            return;
+        }
+
+        // No selection: paragraph around the caret, delimited by blank lines
+        IdeDocument ideDocument = new IdeDocument(document, document.getCharsSequence());
+        LineView line           = new LineView(ideDocument.getCharsSequence(), 0, 0);
+        lineNumberStart         = document.getLineNumber(editor.getCaretModel().getOffset());
+        lineNumberEnd           = lineNumberStart;
+        while (lineNumberStart > 0 && !line.setLine(ideDocument, lineNumberStart - 1).isBlank()) {
+            lineNumberStart--;
+        }
+        while (lineNumberEnd < document.getLineCount() - 1 && !line.setLine(ideDocument, lineNumberEnd + 1).isBlank()) {
+            lineNumberEnd++;
+        }
+    }
+
+    @NotNull
+    @Override
+    public TextRange getAffectedRange() {
+        return new TextRange(document.getLineStartOffset(lineNumberStart), document.getLineEndOffset(lineNumberEnd));
+    }
+
+    @Override
+    public EditPlan computeEditPlan(@NotNull CharSequence text) {
+        return ReflowEngine.reflow(new IdeDocument(document, text), lineNumberStart, lineNumberEnd,
+                width, tabSize, isOptimalFit, IdeDocument.CANCELLATION);
+    }
+
+    @Override
+    public void apply(@NotNull EditPlan editPlan) {
+        TextRange affectedRange = getAffectedRange();
+        IdeDocument.apply(document, editPlan);
+
+        editor.getSelectionModel().setSelection(
+                editPlan.getShiftedOffset(affectedRange.getStartOffset(), false),
+                editPlan.getShiftedOffset(affectedRange.getEndOffset(), true));
+    }
+}
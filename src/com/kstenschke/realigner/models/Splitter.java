@@ -15,214 +15,236 @@
  */
 package com.kstenschke.realigner.models;
 
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.ScrollType;
 import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
-import com.intellij.psi.PsiDocumentManager;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.codeStyle.CommonCodeStyleSettings;
+import com.kstenschke.realigner.Preferences;
+import com.kstenschke.realigner.core.*;
 import com.kstenschke.realigner.resources.StaticTexts;
-import com.kstenschke.realigner.resources.forms.DialogSplitOptions;
-import com.kstenschke.realigner.utils.UtilsTextual;
-import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public class Splitter {
+public class Splitter implements EditOperation {
 
     final private Project project;
     private final Editor editor;
+    private final Document document;
+
+    private final String delimiter;
+    private final boolean isRegex;
+    private final boolean trimWhitespace;
+    private final Integer delimiterDisposalMethod;
+    private final Map<String, Integer> furtherDelimiters;
+    private final long regexTimeoutMillis;
+    private final int softWrapColumn;
+
+    private boolean hasSelection;
+    private int offsetSelectionStart;
+    private int offsetSelectionEnd;
+    private int lineNumberCaret;
+    private int tabSize;
+
+    private boolean isDelimiterMissing = false;
+    private boolean isRegexTimedOut = false;
+    private int lineNumberSoftWrap = -1;
+    private int offsetLinesStart;
+    private int offsetLinesEnd;
 
     /**
      * Constructor
      *
+     * @param project
      * @param editor
+     * @param delimiter                 Empty delimiter w/o selection: split at soft-wrap
+     * @param isRegex                   Is the delimiter a regular expression? (to be validated before, via PatternCache)
+     * @param trimWhitespace
+     * @param delimiterDisposalMethod
+     * @param furtherDelimiters         Literal delimiters to split at as well, mapped to their own disposal method
      */
-    public Splitter(Project project, Editor editor) {
-        this.project = project;
-        this.editor  = editor;
+    public Splitter(Project project, Editor editor, String delimiter, boolean isRegex, boolean trimWhitespace, Integer delimiterDisposalMethod, Map<String, Integer> furtherDelimiters) {
+        this.project  = project;
+        this.editor   = editor;
+        this.document = editor.getDocument();
+
+        this.delimiter               = null == delimiter ? "" : delimiter;
+        this.isRegex                 = isRegex;
+        this.trimWhitespace          = trimWhitespace;
+        this.delimiterDisposalMethod = delimiterDisposalMethod;
+        this.furtherDelimiters       = isRegex || null == furtherDelimiters ? new LinkedHashMap<>() : furtherDelimiters;
+        this.regexTimeoutMillis      = Preferences.getRegexTimeoutMillis();
+        this.softWrapColumn          = Preferences.getReflowWidth();
     }
 
     /**
-     * Split line at soft-wrap (no selection + empty delimiter)
-     *
-     * @param document
+     * Split the selected lines or the line containing the caret by delimiter, or at soft-wrap
      */
-    public void splitLineAtSoftWrap(Document document) {
-        int caretOffset = editor.getCaretModel().getOffset();
-        int lineNumber = document.getLineNumber(caretOffset);
-        int offsetLineStart = document.getLineStartOffset(lineNumber);
-
-        String lineText = UtilsTextual.extractLine(document, lineNumber);
-        Integer textLength = getTextWidth(lineText);
+    public void split() {
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_SPLIT, this).run();
+    }
 
-        if (null == textLength || textLength < 121) {
-            return;
-        }
+    @Override
+    public void prepare() {
+        SelectionModel selectionModel = editor.getSelectionModel();
 
-        int offsetLineEnd = offsetLineStart + lineText.length() - 1;
-        int wrapPosition = 120;
-        String wrapChar = lineText.substring(wrapPosition, wrapPosition + 1);
+        hasSelection         = selectionModel.hasSelection();
+        offsetSelectionStart = selectionModel.getSelectionStart();
+        offsetSelectionEnd   = selectionModel.getSelectionEnd();
+        lineNumberCaret      = document.getLineNumber(editor.getCaretModel().getOffset());
+        tabSize              = WidthMetrics.getTabSize(project, editor);
+    }
 
-        while (wrapPosition > 0 && isUnsplittableChar(wrapChar)) {
-            wrapPosition--;
-            wrapChar = lineText.substring(wrapPosition, wrapPosition + 1);
-        }
-        if (wrapPosition <= 1) {
-            return;
+    @NotNull
+    @Override
+    public TextRange getAffectedRange() {
+        if (hasSelection) {
+            return new TextRange(offsetSelectionStart, offsetSelectionEnd);
         }
-
-        String explodedText = lineText.substring(0, wrapPosition) +
-                (",".equals(wrapChar) ? wrapChar : "") + "\n" +
-                lineText.substring(wrapPosition + 1);
-
-        ApplicationManager.getApplication().runWriteAction(() -> {
-            document.replaceString(offsetLineStart, offsetLineEnd, explodedText);
-
-            editor.getCaretModel().moveToOffset(document.getLineStartOffset(lineNumber + 1));
-            editor.getScrollingModel().scrollToCaret(ScrollType.CENTER);
-        });
+        return new TextRange(document.getLineStartOffset(lineNumberCaret), document.getLineEndOffset(lineNumberCaret));
     }
 
-    /**
-     * Explode line containing the caret by delimiter
-     *
-     * @param document
-     * @param delimiter
-     * @param trimWhitespace
-     * @param delimiterDisposalMethod
-     */
-    public void splitLine(Document document, SelectionModel selectionModel, String delimiter, boolean trimWhitespace, Integer delimiterDisposalMethod) {
-        int caretOffset = editor.getCaretModel().getOffset();
-        int lineNumber = document.getLineNumber(caretOffset);
+    @Override
+    public EditPlan computeEditPlan(@NotNull CharSequence text) {
+        isDelimiterMissing = false;
+        isRegexTimedOut    = false;
+        lineNumberSoftWrap = -1;
 
-        int offsetLineStart = document.getLineStartOffset(lineNumber);
-        String lineText = UtilsTextual.extractLine(document, lineNumber);
-        int offsetLineEnd = offsetLineStart + lineText.length() - 1;
+        if (delimiter.isEmpty() && furtherDelimiters.isEmpty()) {
+            return hasSelection ? null : getSplitLineAtSoftWrapEditPlan(text);
+        }
 
-        if (!lineText.contains(delimiter)) {
-            JOptionPane.showMessageDialog(null, StaticTexts.NOTIFICATION_SPLIT_DELIMITER_MISSING);
-        } else {
-            ApplicationManager.getApplication().runWriteAction(() -> {
-                document.replaceString(offsetLineStart, offsetLineEnd, getExplodedLineText(delimiter, trimWhitespace, delimiterDisposalMethod, lineText));
-                alignSelectedLinesIndent(document, selectionModel);
-            });
+        try {
+            return hasSelection ? getSplitSelectionEditPlan(text) : getSplitLineEditPlan(text);
+        } catch (MatchTimeoutException e) {
+            isRegexTimedOut = true;
+            return null;
         }
     }
 
-    public void splitSelection(Document document, SelectionModel selectionModel, String delimiter, boolean trimWhitespace, Integer delimiterDisposalMethod) {
-        int offsetStart = selectionModel.getSelectionStart();
-        int offsetEnd = selectionModel.getSelectionEnd();
+    @Override
+    public void apply(@NotNull EditPlan editPlan) {
+        IdeDocument.apply(document, editPlan);
 
-        CharSequence editorText = document.getCharsSequence();
-        String selectedText = UtilsTextual.getSubString(editorText, offsetStart, offsetEnd);
+        if (hasSelection) {
+            editor.getSelectionModel().setSelection(
+                    editPlan.getShiftedOffset(offsetLinesStart, false),
+                    editPlan.getShiftedOffset(offsetLinesEnd, true));
+        } else if (-1 != lineNumberSoftWrap) {
+            editor.getCaretModel().moveToOffset(document.getLineStartOffset(lineNumberSoftWrap + 1));
+            editor.getScrollingModel().scrollToCaret(ScrollType.CENTER);
+        }
+    }
 
-        if (null != selectedText && !selectedText.contains(delimiter)) {
+    @Override
+    public void onNothingToApply() {
+        if (isDelimiterMissing) {
             JOptionPane.showMessageDialog(null, StaticTexts.NOTIFICATION_SPLIT_DELIMITER_MISSING);
-        } else {
-            ApplicationManager.getApplication().runWriteAction(() -> {
-                int selectionStart = document.getLineNumber(selectionModel.getSelectionStart());
-                int selectionEnd = document.getLineNumber(selectionModel.getSelectionEnd());
-
-                for (int lineNumber = selectionEnd; lineNumber >= selectionStart; lineNumber--) {
-                    int offsetLineStart = document.getLineStartOffset(lineNumber);
-                    String lineText = UtilsTextual.extractLine(document, lineNumber);
-                    int offsetLineEnd = offsetLineStart + lineText.length() - 1;
-
-                    String exploded = getExplodedLineText(delimiter, trimWhitespace, delimiterDisposalMethod, lineText);
-
-                    document.replaceString(offsetLineStart, offsetLineEnd, exploded);
-                }
-                alignSelectedLinesIndent(document, selectionModel);
-            });
+        } else if (isRegexTimedOut) {
+            JOptionPane.showMessageDialog(null, StaticTexts.NOTIFICATION_REGEX_TIMEOUT);
         }
     }
 
-    private void alignSelectedLinesIndent(Document document, SelectionModel selectionModel) {
-        // Fetch leading whitespace of first line
-        int offsetSelectionStart = selectionModel.getSelectionStart();
-        int lineNumberSelectionStart = document.getLineNumber(offsetSelectionStart);
-        int offsetSelectionEnd = selectionModel.getSelectionEnd();
-
-        int startOffsetFirstLine = document.getLineStartOffset(lineNumberSelectionStart);
-        int endOffsetFirstLine = document.getLineEndOffset(lineNumberSelectionStart);
-        String firstLine = document.getText(new TextRange(startOffsetFirstLine, endOffsetFirstLine));
-        String indent = firstLine.replace(UtilsTextual.lTrim(firstLine), "");
-
-        String[] selectedLines = document.getText(new TextRange(offsetSelectionStart, offsetSelectionEnd)).split("\n");
-        int index = 0;
-        for (String line : selectedLines) {
-            if (index > 0 && !line.startsWith(indent)) {
-                selectedLines[index] = indent + line;
-            }
-            index++;
+    /**
+     * Split line at soft-wrap (no selection + empty delimiter): insert line breaks at whitespace so that its parts do not
+     * exceed the soft-wrap column, the rest of the line remains untouched
+     *
+     * @param   text
+     * @return  EditPlan
+     */
+    private EditPlan getSplitLineAtSoftWrapEditPlan(CharSequence text) {
+        int offsetLineStart = document.getLineStartOffset(lineNumberCaret);
+        int offsetLineEnd   = document.getLineEndOffset(lineNumberCaret);
+        if (DisplayWidth.getColumns(text, offsetLineStart, offsetLineEnd, tabSize) <= softWrapColumn) {
+            return null;
         }
-        document.replaceString(offsetSelectionStart, offsetSelectionEnd, StringUtils.join(selectedLines, "\n"));
-    }
 
-    private String getExplodedLineText(String delimiter, boolean trimWhitespace, Integer delimiterDisposalMethod, String lineText) {
-        String replacement = getSplitReplacementByDelimiterDisposalMethod(delimiter, delimiterDisposalMethod);
-        String result      = lineText.replace(delimiter, replacement);
+        EditPlan editPlan = OverlongLineEngine.breakLine(text, offsetLineStart, offsetLineEnd, softWrapColumn, tabSize);
+        if (null != editPlan) {
+            lineNumberSoftWrap = lineNumberCaret;
+        }
 
-        return trimWhitespace ? UtilsTextual.trimLines(result) : result;
+        return editPlan;
     }
 
     /**
-     * @param   charStr
-     * @return  Does the given character not allow splitting the line at?
+     * Explode line containing the caret by delimiter
+     *
+     * @param   text
+     * @return  EditPlan
      */
-    private static boolean isUnsplittableChar(String charStr) {
-        return " ".equals(charStr) ||
-               "\t".equals(charStr) ||
-                ",".equals(charStr);
+    private EditPlan getSplitLineEditPlan(CharSequence text) {
+        DelimiterMatcher delimiterMatcher = createDelimiterMatcher();
+
+        if (-1 == delimiterMatcher.find(text, document.getLineStartOffset(lineNumberCaret), document.getLineEndOffset(lineNumberCaret))) {
+            isDelimiterMissing = true;
+            return null;
+        }
+
+        return split(text, lineNumberCaret, lineNumberCaret, delimiterMatcher);
     }
 
     /**
-     * Get visual length of given text, that is in editor where tabs resolve to the width of multiple characters
+     * Explode all lines touched by the selection by delimiter, replace them with a single edit
      *
-     * @param   text        Text to be "measured"
-     * @return  Integer     Amount of characters
+     * @param   text
+     * @return  EditPlan
      */
-    private Integer getTextWidth(String text) {
-        if (null == this.project) {
+    private EditPlan getSplitSelectionEditPlan(CharSequence text) {
+        DelimiterMatcher delimiterMatcher = createDelimiterMatcher();
+        if (offsetSelectionStart < offsetSelectionEnd
+         && -1 == delimiterMatcher.find(text, offsetSelectionStart, offsetSelectionEnd)
+        ) {
+            isDelimiterMissing = true;
             return null;
         }
-        PsiFile psiFile = PsiDocumentManager.getInstance(this.project).getPsiFile(this.editor.getDocument());
-        if (null != psiFile) {
-            return null;
-        }
-
-        CommonCodeStyleSettings commonCodeStyleSettings = new CommonCodeStyleSettings(psiFile.getLanguage());
-        CommonCodeStyleSettings.IndentOptions indentOptions = commonCodeStyleSettings.getIndentOptions();
 
-        // Get tab size
-        int tabSize = null != indentOptions ? indentOptions.TAB_SIZE : 0;
-        if (0 == tabSize) {
-            tabSize = this.editor.getSettings().getTabSize(this.project);
-        }
+        int lineNumberStart = document.getLineNumber(offsetSelectionStart);
+        int lineNumberEnd   = document.getLineNumber(offsetSelectionEnd);
+        offsetLinesStart    = document.getLineStartOffset(lineNumberStart);
+        offsetLinesEnd      = document.getLineEndOffset(lineNumberEnd);
 
-        return text.length() + UtilsTextual.countTabOccurrences(text) * (tabSize - 1);
+        return split(text, lineNumberStart, lineNumberEnd, delimiterMatcher);
     }
 
     /**
-     * Get split replacement string, according to given delimiter and delimiter disposal method
-     *
-     * @param   delimiter      Delimiter string
-     * @param   disposalMethod   Before/At/After
-     * @return  String
+     * @return  DelimiterMatcher    Matcher of the regular expression (bounded in time), the literal delimiter,
+     *                              or of all literal delimiters at once
      */
-    private String getSplitReplacementByDelimiterDisposalMethod(String delimiter, Integer disposalMethod) {
-        if (DialogSplitOptions.METHOD_DELIMITER_DISPOSAL_BEFORE == disposalMethod) {
-            return "\n" + delimiter;
+    private DelimiterMatcher createDelimiterMatcher() {
+        if (isRegex) {
+            return new RegexDelimiterMatcher(PatternCache.get(delimiter, 0), delimiterDisposalMethod, IdeDocument.CANCELLATION, regexTimeoutMillis);
+        }
+        if (furtherDelimiters.isEmpty()) {
+            return new LiteralDelimiterMatcher(delimiter, delimiterDisposalMethod);
         }
-        if (DialogSplitOptions.METHOD_DELIMITER_DISPOSAL_AFTER == disposalMethod) {
-            return delimiter + "\n";
+
+        Map<String, Integer> delimiters = new LinkedHashMap<>();
+        delimiters.put(delimiter, delimiterDisposalMethod);
+        for (Map.Entry<String, Integer> furtherDelimiter : furtherDelimiters.entrySet()) {
+            delimiters.putIfAbsent(furtherDelimiter.getKey(), furtherDelimiter.getValue());
         }
 
-        return "\n";
+        return new MultiDelimiterMatcher(delimiters);
+    }
+
+    /**
+     * @param   text
+     * @param   lineNumberStart
+     * @param   lineNumberEnd
+     * @param   delimiterMatcher
+     * @return  EditPlan
+     */
+    private EditPlan split(CharSequence text, int lineNumberStart, int lineNumberEnd, DelimiterMatcher delimiterMatcher) {
+        IdeDocument ideDocument = new IdeDocument(document, text);
+
+        // A single literal delimiter is split by the engine directly, allowing parallel explosion of huge lines
+        return delimiterMatcher instanceof LiteralDelimiterMatcher
+                ? SplitEngine.split(ideDocument, lineNumberStart, lineNumberEnd, delimiter, trimWhitespace, delimiterDisposalMethod, IdeDocument.CANCELLATION)
+                : SplitEngine.split(ideDocument, lineNumberStart, lineNumberEnd, delimiterMatcher, trimWhitespace, IdeDocument.CANCELLATION);
     }
 }
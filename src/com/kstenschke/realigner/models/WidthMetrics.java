@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.models;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.codeStyle.CodeStyleSettingsListener;
+import com.intellij.psi.codeStyle.CodeStyleSettingsManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Project service providing the tab size used to measure the display width of document text, w/o resolving the PSI file.
+ * Tab sizes are cached per file type, until the code style settings of the project change
+ */
+public class WidthMetrics implements Disposable {
+
+    private static final int DEFAULT_TAB_SIZE = 4;
+
+    private final Project project;
+    private final Map<FileType, Integer> tabSizes = new ConcurrentHashMap<>();
+    private final CodeStyleSettingsListener settingsListener = event -> tabSizes.clear();
+
+    /**
+     * Constructor
+     *
+     * @param project
+     */
+    public WidthMetrics(Project project) {
+        this.project = project;
+        CodeStyleSettingsManager.getInstance(project).addListener(settingsListener);
+    }
+
+    public static WidthMetrics getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, WidthMetrics.class);
+    }
+
+    /**
+     * @param   project     Null: use the settings of the editor
+     * @param   editor
+     * @return  int         Columns per tab within the document of the given editor
+     */
+    public static int getTabSize(@Nullable Project project, @NotNull Editor editor) {
+        return null == project
+                ? editor.getSettings().getTabSize(null)
+                : getInstance(project).getTabSize(editor.getDocument());
+    }
+
+    /**
+     * @param   document
+     * @return  int         Columns per tab configured for the file type of the given document
+     */
+    public int getTabSize(@NotNull Document document) {
+        VirtualFile file  = FileDocumentManager.getInstance().getFile(document);
+        FileType fileType = null == file ? PlainTextFileType.INSTANCE : file.getFileType();
+
+        return tabSizes.computeIfAbsent(fileType, type -> {
+            int tabSize = CodeStyleSettingsManager.getSettings(project).getIndentOptions(type).TAB_SIZE;
+            return tabSize > 0 ? tabSize : DEFAULT_TAB_SIZE;
+        });
+    }
+
+    @Override
+    public void dispose() {
+        CodeStyleSettingsManager.getInstance(project).removeListener(settingsListener);
+    }
+}
@@ -15,37 +15,54 @@
  */
 package com.kstenschke.realigner.models;
 
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
 import com.kstenschke.realigner.*;
+import com.kstenschke.realigner.core.EditPlan;
+import com.kstenschke.realigner.core.LineIndex;
+import com.kstenschke.realigner.core.LineView;
+import com.kstenschke.realigner.core.WrapEngine;
+import com.kstenschke.realigner.resources.StaticTexts;
 import com.kstenschke.realigner.resources.forms.DialogWrapOptions;
-import com.kstenschke.realigner.utils.UtilsTextual;
+import org.jetbrains.annotations.NotNull;
 
-public class Wrapper {
+import java.util.ArrayList;
+import java.util.List;
 
+public class Wrapper implements EditOperation {
+
+    private final Project project;
     private final Editor editor;
     private final Document document;
 
     private SelectionModel selectionModel;
     private boolean hasSelection = false;
     public boolean isSelectionMultiLine = false;
-    private int offsetSelectionStart;
-    private int offsetSelectionEnd;
-    private int lineNumberSelectionStart;
-    private int lineNumberSelectionEnd;
-    private CaretModel caretModel;
+
+    private boolean isUnwrap;
+    private String prefix;
+    private String postfix;
+    private Integer wrapMode;
+
+    // Per caret: selection start, selection end, caret offset, has selection (1/0)
+    private final List<int[]> caretStates = new ArrayList<>();
+
+    // Per caret: range to be selected after un/wrapping, in offsets of the unmodified document
+    private final List<int[]> selectionRanges = new ArrayList<>();
 
     /**
      * Constructor
      *
+     * @param project
      * @param editor The editor
      */
-    public Wrapper(Editor editor) {
-        this.editor = editor;
+    public Wrapper(Project project, Editor editor) {
+        this.project  = project;
+        this.editor   = editor;
         this.document = editor.getDocument();
 
         this.initSelectionProperties();
-        this.initCaretProperties();
     }
 
     /**
@@ -58,19 +75,12 @@ public class Wrapper {
             return;
         }
 
-        this.offsetSelectionStart   = this.selectionModel.getSelectionStart();
-        this.offsetSelectionEnd     = this.selectionModel.getSelectionEnd();
-
-        this.lineNumberSelectionStart = this.document.getLineNumber(this.offsetSelectionStart);
-        this.lineNumberSelectionEnd   = this.document.getLineNumber(this.offsetSelectionEnd);
+        int lineNumberSelectionStart = this.document.getLineNumber(this.selectionModel.getSelectionStart());
+        int lineNumberSelectionEnd   = this.document.getLineNumber(this.selectionModel.getSelectionEnd());
 
         this.isSelectionMultiLine = lineNumberSelectionStart < lineNumberSelectionEnd;
     }
 
-    private void initCaretProperties() {
-        this.caretModel = this.editor.getCaretModel();
-    }
-
     /**
      * @return  int     Line number where the caret is
      */
@@ -80,15 +90,6 @@ public class Wrapper {
         return document.getLineNumber(caretOffset);
     }
 
-    /**
-     * @return  String  Selected text
-     */
-    private String getSelectedText() {
-        CharSequence editorText = document.getCharsSequence();
-
-        return UtilsTextual.getSubString(editorText, this.offsetSelectionStart, this.offsetSelectionEnd);
-    }
-
     /**
      * Perform wrapping of line around caret, single- or multi-line selection
      *
@@ -97,34 +98,12 @@ public class Wrapper {
      * @param   wrapMode    If multi-line: wrap each line / whole selection
      */
     public void wrap(final String prefix, final String postfix, final Integer wrapMode) {
-        ApplicationManager.getApplication().runWriteAction(() -> this.caretModel.runForEachCaret(caret -> {
-            if (hasSelection) {
-                // get selection offsets and line numbers
-                updateCaretSelectionProperties(caret);
-
-                if (document.getLineStartOffset(lineNumberSelectionEnd) == offsetSelectionEnd) {
-                    lineNumberSelectionEnd--;
-                }
-
-                if (lineNumberSelectionStart == lineNumberSelectionEnd || wrapMode.equals(DialogWrapOptions.MODE_WRAP_WHOLE)) {
-                    String selectedText = getSelectedText();
-                    wrapSingleLinedSelection(selectedText, prefix, postfix);
-                } else {
-                    wrapMultiLineSelection(prefix, postfix);
-                }
-            } else {
-                // No selection: wrap the line where the caret is
-                wrapCaretLine(prefix, postfix);
-            }
-        }));
-    }
+        this.isUnwrap = false;
+        this.prefix   = prefix;
+        this.postfix  = postfix;
+        this.wrapMode = wrapMode;
 
-    private void updateCaretSelectionProperties(Caret caret) {
-        offsetSelectionStart = caret.getSelectionStart();
-        offsetSelectionEnd = caret.getSelectionEnd();
-
-        lineNumberSelectionStart = document.getLineNumber(offsetSelectionStart);
-        lineNumberSelectionEnd = document.getLineNumber(offsetSelectionEnd);
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_WRAP, this).run();
     }
 
     /**
@@ -134,157 +113,105 @@ public class Wrapper {
      * @param   postfix
      */
     public void unwrap(final String prefix, final String postfix) {
-        ApplicationManager.getApplication().runWriteAction(() -> this.caretModel.runForEachCaret(caret -> {
-            updateCaretSelectionProperties(caret);
-
-            if (hasSelection) {
-                if (document.getLineStartOffset(lineNumberSelectionEnd) == offsetSelectionEnd) {
-                    lineNumberSelectionEnd--;
-                }
-
-                if (lineNumberSelectionStart == lineNumberSelectionEnd) {
-                    unwrapSingleLinedSelection(prefix, postfix);
-                } else {
-                    unwrapMultiLineSelection(prefix, postfix);
-                }
-            } else {
-                // No selection: wrap the line where the caret is
-                unwrapCaretLine(prefix, postfix);
-            }
-        }));
-    }
-
-    /**
-     * Wrap selection over multiple lines with given prefix and postfix, do given transformations on selection
-     *
-     * @param   prefix
-     * @param   postfix
-     */
-    private void wrapMultiLineSelection(String prefix, String postfix) {
-        // Wrap each line, begin/end at selection offsets
-        int prefixLen = prefix.length();
-        lineNumberSelectionEnd = document.getLineNumber(selectionModel.getSelectionEnd());
-
-        for (int lineNumber = lineNumberSelectionEnd; lineNumber >= lineNumberSelectionStart; lineNumber--) {
-            int offsetLineStart = document.getLineStartOffset(lineNumber);
-            String lineText = UtilsTextual.extractLine(document, lineNumber);
-            int offsetLineEnd = offsetLineStart + lineText.length() - 1;
+        this.isUnwrap = true;
+        this.prefix   = prefix;
+        this.postfix  = postfix;
 
-            document.insertString(offsetLineEnd, postfix);
-            document.insertString(offsetLineStart, prefix);
+        new EditRunner(project, document, StaticTexts.UNDO_HISTORY_UNWRAP, this).run();
+    }
 
-            lineText = lineText.replaceAll("\n", "");
-            document.replaceString(offsetLineStart + prefixLen, offsetLineEnd + prefixLen, lineText);
+    @Override
+    public void prepare() {
+        caretStates.clear();
+        for (Caret caret : editor.getCaretModel().getAllCarets()) {
+            caretStates.add(new int[]{
+                    caret.getSelectionStart(), caret.getSelectionEnd(), caret.getOffset(), caret.hasSelection() ? 1 : 0
+            });
         }
-        // Update selection: all lines of selection fully
-        selectionModel.setSelection(
-            document.getLineStartOffset(lineNumberSelectionStart),
-            document.getLineEndOffset(lineNumberSelectionEnd)
-        );
     }
 
-    /**
-     * Unwrap selection within a single line with given prefix and postfix, do given transformations on selection
-     *
-     * @param   prefix
-     * @param   postfix
-     */
-    private void wrapSingleLinedSelection(String selectedText, String prefix, String postfix) {
-        String wrappedString = prefix + selectedText + postfix;
-        document.replaceString(offsetSelectionStart, offsetSelectionEnd, wrappedString);
+    @NotNull
+    @Override
+    public TextRange getAffectedRange() {
+        int offsetStart = document.getTextLength();
+        int offsetEnd   = 0;
+        for (int[] caretState : caretStates) {
+            offsetStart = Math.min(offsetStart, 1 == caretState[3] ? caretState[0] : caretState[2]);
+            offsetEnd   = Math.max(offsetEnd, 1 == caretState[3] ? caretState[1] : caretState[2]);
+        }
 
-        // Update selection
-        selectionModel.setSelection(offsetSelectionStart, offsetSelectionStart + wrappedString.length());
+        return offsetStart > offsetEnd ? TextRange.EMPTY_RANGE : new TextRange(offsetStart, offsetEnd);
     }
 
-    /**
-     * Wrap the line where the caret is with given prefix and postfix, do given transformations on the line
-     *
-     * @param   prefix
-     * @param   postfix
-     */
-    private void wrapCaretLine(String prefix, String postfix) {
-        int lineNumber      = getCaretLineNumber();
-        int offsetLineStart = document.getLineStartOffset(lineNumber);
-        String lineText     = UtilsTextual.extractLine(document, lineNumber);
-        int offsetLineEnd   = offsetLineStart + lineText.length() - 1;
-
-        document.insertString(offsetLineEnd, postfix);
-        document.insertString(offsetLineStart, prefix);
+    @Override
+    public EditPlan computeEditPlan(@NotNull CharSequence text) {
+        EditPlan editPlan = new EditPlan();
+        selectionRanges.clear();
 
-        lineText = lineText.replaceAll("\n", "");
-        int prefixLen = prefix.length();
+        for (int[] caretState : caretStates) {
+            if (1 == caretState[3]) {
+                addSelectionEdits(editPlan, text, caretState[0], caretState[1]);
+            } else {
+                // No selection: un/wrap the line where the caret is
+                int lineNumber      = document.getLineNumber(caretState[2]);
+                int offsetLineStart = document.getLineStartOffset(lineNumber);
+                int offsetLineEnd   = document.getLineEndOffset(lineNumber);
 
-        document.replaceString(offsetLineStart + prefixLen, offsetLineEnd + prefixLen, lineText);
+                WrapEngine.addRangeEdits(editPlan, text, offsetLineStart, offsetLineEnd, prefix, postfix, isUnwrap);
+                selectionRanges.add(new int[]{offsetLineStart, offsetLineEnd});
+            }
+        }
 
-        // Update selection: whole line
-        selectionModel.setSelection(document.getLineStartOffset(lineNumber), document.getLineEndOffset(lineNumber));
+        return editPlan;
     }
 
-    /**
-     * Unwrap the line the caret is in
-     *
-     * @param   prefix
-     * @param   postfix
-     */
-    private void unwrapCaretLine(String prefix, String postfix) {
-        int lineNumber      = getCaretLineNumber();
-        int offsetLineStart = document.getLineStartOffset(lineNumber);
-        String lineText     = UtilsTextual.extractLine(document, lineNumber);
-        int offsetLineEnd   = offsetLineStart + lineText.length() - 1;
+    @Override
+    public void apply(@NotNull EditPlan editPlan) {
+        IdeDocument.apply(document, editPlan);
 
-        this.offsetSelectionStart   = offsetLineStart;
-        this.offsetSelectionEnd     = offsetLineEnd;
-
-        this.unwrapSingleLinedSelection(prefix, postfix);
-    }
-
-    /**
-     * Remove given strings from the beginning and ending of current selection
-     *
-     * @param   prefix
-     * @param   postfix
-     */
-    private void unwrapSingleLinedSelection(String prefix, String postfix) {
-        CharSequence editorText = document.getCharsSequence();
-        String unwrappedString  = UtilsTextual.getSubString(editorText, offsetSelectionStart, offsetSelectionEnd);
-
-        if (null == unwrappedString) {
+        // Update selections: whole un/wrapped text of each caret
+        List<Caret> carets = editor.getCaretModel().getAllCarets();
+        if (carets.size() != selectionRanges.size()) {
             return;
         }
-        unwrappedString = UtilsTextual.unwrap(unwrappedString, prefix, postfix);
-
-        // Update selected text with unwrapped version, update set selection
-        document.replaceString(offsetSelectionStart, offsetSelectionEnd, unwrappedString);
-        selectionModel.setSelection(offsetSelectionStart, offsetSelectionStart + unwrappedString.length());
+        for (int i = 0; i < carets.size(); i++) {
+            int[] range = selectionRanges.get(i);
+            carets.get(i).setSelection(editPlan.getShiftedOffset(range[0], false), editPlan.getShiftedOffset(range[1], true));
+        }
     }
 
     /**
-     * Unwrap selection over multiple lines with given prefix and postfix, do given transformations on selection
+     * Add edits to un/wrap the given selection: each line or the selection as a whole
      *
-     * @param   prefix
-     * @param   postfix
+     * @param   editPlan
+     * @param   text
+     * @param   offsetSelectionStart
+     * @param   offsetSelectionEnd
      */
-    private void unwrapMultiLineSelection(String prefix, String postfix) {
-        // Unwrap each line, begin/end at selection offsets
-        lineNumberSelectionEnd = document.getLineNumber(selectionModel.getSelectionEnd());
-
-        for (int lineNumber = lineNumberSelectionEnd; lineNumber >= lineNumberSelectionStart; lineNumber--) {
-            int offsetLineStart = document.getLineStartOffset(lineNumber);
-            String lineText = UtilsTextual.extractLine(document, lineNumber);
-            int offsetLineEnd = offsetLineStart + lineText.length() - 1;
-
-            lineText = lineText.replaceAll("\n", "");
-            lineText = UtilsTextual.unwrap(lineText, prefix, postfix);
+    private void addSelectionEdits(EditPlan editPlan, CharSequence text, int offsetSelectionStart, int offsetSelectionEnd) {
+        int lineNumberSelectionStart = document.getLineNumber(offsetSelectionStart);
+        int lineNumberSelectionEnd   = document.getLineNumber(offsetSelectionEnd);
+        if (document.getLineStartOffset(lineNumberSelectionEnd) == offsetSelectionEnd) {
+            lineNumberSelectionEnd--;
+        }
 
-            document.replaceString(offsetLineStart, offsetLineEnd, lineText);
+        if (lineNumberSelectionStart >= lineNumberSelectionEnd
+         || (!isUnwrap && wrapMode.equals(DialogWrapOptions.MODE_WRAP_WHOLE))
+        ) {
+            WrapEngine.addRangeEdits(editPlan, text, offsetSelectionStart, offsetSelectionEnd, prefix, postfix, isUnwrap);
+            selectionRanges.add(new int[]{offsetSelectionStart, offsetSelectionEnd});
+            return;
         }
 
-        // Update selection: all lines of selection fully
-        selectionModel.setSelection(
-            document.getLineStartOffset(lineNumberSelectionStart),
-            document.getLineEndOffset(lineNumberSelectionEnd)
-        );
+        // Un/wrap each line, begin/end at selection offsets. Lines are indexed once, edits are planned against the index
+        LineIndex lineIndex = LineIndex.of(new IdeDocument(document, text), lineNumberSelectionStart, lineNumberSelectionEnd, IdeDocument.CANCELLATION);
+        WrapEngine.addLinesEdits(editPlan, lineIndex, lineNumberSelectionStart, lineNumberSelectionEnd,
+                prefix, postfix, isUnwrap, IdeDocument.CANCELLATION);
+
+        // Select all lines of selection fully
+        selectionRanges.add(new int[]{
+                lineIndex.getLineStartOffset(lineNumberSelectionStart), lineIndex.getLineEndOffset(lineNumberSelectionEnd)
+        });
     }
 
     /**
@@ -293,16 +220,22 @@ public class Wrapper {
      * @return  boolean     Is caret line or selection wrapped into given pre/postfix?
      */
     public boolean isWrapped(String prefix, String postfix) {
-        String text = hasSelection
-                ? document.getText().substring(selectionModel.getSelectionStart(), selectionModel.getSelectionEnd() )
-                : UtilsTextual.extractLine(document, getCaretLineNumber() );
-        text    = text.trim();
-
-        if (Preferences.getMultiLineWrapMode() != DialogWrapOptions.MODE_WRAP_WHOLE && text.contains("\n")) {
+        CharSequence text = document.getCharsSequence();
+        if (0 == text.length()) {
+            return false;
+        }
+        int lineNumber = getCaretLineNumber();
+        LineView view = hasSelection
+                ? new LineView(text, selectionModel.getSelectionStart(), selectionModel.getSelectionEnd())
+                : new LineView(text, document.getLineStartOffset(lineNumber), document.getLineEndOffset(lineNumber));
+        view.trim();
+
+        int offsetNewline = view.indexOf('\n');
+        if (Preferences.getMultiLineWrapMode() != DialogWrapOptions.MODE_WRAP_WHOLE && -1 != offsetNewline) {
             // Wrap mode works on every line: Analyze first line only
-            text = text.split("\n")[0].trim();
+            view.setRange(view.getOffsetStart(), view.getOffsetStart() + offsetNewline).trim();
         }
 
-        return text.startsWith(prefix) && text.endsWith(postfix);
+        return view.startsWith(prefix) && view.endsWith(postfix);
     }
 }
@@ -36,11 +36,25 @@ public class StaticTexts {
     public static final String NOTIFICATION_SPLIT_DELIMITER_MISSING = "Delimiter not found.";
     @NonNls
     public static final String NOTIFICATION_JOIN_NO_LINES_SELECTED = "Please select lines to be joined.";
+    @NonNls
+    public static final String NOTIFICATION_JOIN_NO_LINES_MATCHING = "No selected line matches the pattern.";
+    @NonNls
+    public static final String NOTIFICATION_NO_OVERLONG_LINES = "No line to be broken exceeds the right margin of %d columns.";
+    @NonNls
+    public static final String NOTIFICATION_REGEX_INVALID = "Invalid regular expression: ";
+    @NonNls
+    public static final String NOTIFICATION_REGEX_TIMEOUT = "Regular expression took too long to match and was aborted.";
+    @NonNls
+    public static final String NOTIFICATION_CONCURRENT_MODIFICATION = "The document kept being modified meanwhile, the operation was aborted.";
 
     // Undo history
     @NonNls
     public static final String UNDO_HISTORY_SPLIT = "Split into Lines";
     @NonNls
+    public static final String UNDO_HISTORY_REFLOW = "Reflow Paragraphs";
+    @NonNls
+    public static final String UNDO_HISTORY_BREAK_OVERLONG_LINES = "Break Lines Exceeding Right Margin";
+    @NonNls
     public static final String UNDO_HISTORY_JOIN = "Join Lines with Glue";
     @NonNls
     public static final String UNDO_HISTORY_WRAP = "Wrap Text";
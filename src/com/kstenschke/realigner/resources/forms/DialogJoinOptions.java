@@ -27,6 +27,7 @@ public class DialogJoinOptions extends JDialog {
     private JButton buttonOK;
     private JButton buttonCancel;
     public JTextField textFieldGlue;
+    private JTextField textFieldLinePattern;
     private JLabel labelJoin;
     public boolean clickedOk = false;
 
@@ -41,6 +42,7 @@ public class DialogJoinOptions extends JDialog {
         initIcons();
 
         new JTextFieldAddUndoManager(this.textFieldGlue);
+        new JTextFieldAddUndoManager(this.textFieldLinePattern);
         buttonOK.addActionListener(e -> onOK());
         buttonCancel.addActionListener(e -> onCancel());
 
@@ -52,6 +54,21 @@ public class DialogJoinOptions extends JDialog {
         });
 
         contentPane.registerKeyboardAction(e -> onCancel(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+
+        // The dialog is reused: focus the glue each time it is shown
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                textFieldGlue.requestFocusInWindow();
+            }
+        });
+    }
+
+    /**
+     * Reset state of the previous use, before showing the dialog again
+     */
+    public void reset() {
+        clickedOk = false;
     }
 
     private void initIcons() {
@@ -60,18 +77,29 @@ public class DialogJoinOptions extends JDialog {
 
     private void onOK() {
         clickedOk   = true;
-        dispose();
+        setVisible(false);
     }
 
     private void onCancel() {
         clickedOk   = false;
-        dispose();
+        setVisible(false);
     }
 
     public void setGlue(String glue) {
         textFieldGlue.setText(glue);
     }
 
+    /**
+     * @return  String  Regular expression of lines to be joined to their preceding line, empty: join all lines
+     */
+    public String getLinePattern() {
+        return textFieldLinePattern.getText();
+    }
+
+    public void setLinePattern(String linePattern) {
+        textFieldLinePattern.setText(linePattern);
+    }
+
     public static void main(String[] args) {
         DialogJoinOptions dialog = new DialogJoinOptions();
         dialog.pack();
@@ -16,10 +16,14 @@
 package com.kstenschke.realigner.resources.forms;
 
 import com.kstenschke.realigner.JTextFieldAddUndoManager;
+import com.kstenschke.realigner.core.SplitEngine;
 import com.kstenschke.realigner.resources.Icons;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.event.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DialogSplitOptions extends JDialog {
 
@@ -33,13 +37,24 @@ public class DialogSplitOptions extends JDialog {
     private JRadioButton splitBeforeDelimiterRadioButton;
 
     private JTextField textFieldDelimiter;
+    private JCheckBox checkboxRegex;
     private JCheckBox checkboxTrimWhitespace;
     private JLabel labelSplit;
+    private JTable tableFurtherDelimiters;
+    private JCheckBox checkboxReflow;
+    private JTextField textFieldReflowWidth;
+    private JCheckBox checkboxOptimalFit;
 
     // Delimiter disposal methods
-    private static final int METHOD_DELIMITER_DISPOSAL_AT = 0;
-    public static final int METHOD_DELIMITER_DISPOSAL_BEFORE = 1;
-    public static final int METHOD_DELIMITER_DISPOSAL_AFTER = 2;
+    private static final int METHOD_DELIMITER_DISPOSAL_AT = SplitEngine.METHOD_DELIMITER_DISPOSAL_AT;
+    public static final int METHOD_DELIMITER_DISPOSAL_BEFORE = SplitEngine.METHOD_DELIMITER_DISPOSAL_BEFORE;
+    public static final int METHOD_DELIMITER_DISPOSAL_AFTER = SplitEngine.METHOD_DELIMITER_DISPOSAL_AFTER;
+
+    // Labels of the delimiter disposal methods within the further delimiters table, indexed by method
+    private static final String[] LABELS_DELIMITER_DISPOSAL = {"at, remove it", "before", "after"};
+
+    private DefaultTableModel furtherDelimitersModel;
+    private boolean isSettingFurtherDelimiters = false;
 
     public boolean clickedOk = false;
 
@@ -52,8 +67,10 @@ public class DialogSplitOptions extends JDialog {
         getRootPane().setDefaultButton(buttonOK);
 
         initIcons();
+        initFurtherDelimitersTable();
 
         new JTextFieldAddUndoManager(this.textFieldDelimiter);
+        checkboxReflow.addActionListener(e -> updateReflowOptionsEnabled());
         buttonOK.addActionListener(e -> onOK());
         buttonCancel.addActionListener(e -> onCancel());
 
@@ -67,18 +84,70 @@ public class DialogSplitOptions extends JDialog {
 
         // Call onCancel() on ESCAPE
         contentPane.registerKeyboardAction(e -> onCancel(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+
+        // The dialog is reused: focus the delimiter each time it is shown
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                textFieldDelimiter.requestFocusInWindow();
+            }
+        });
+    }
+
+    /**
+     * Reset state of the previous use, before showing the dialog again
+     */
+    public void reset() {
+        clickedOk = false;
+        if (tableFurtherDelimiters.isEditing()) {
+            tableFurtherDelimiters.getCellEditor().cancelCellEditing();
+        }
     }
 
     private void initIcons() {
         labelSplit.setIcon(Icons.ICON_ARROW_SPLIT);
     }
 
+    /**
+     * Init table of further delimiters: delimiter and where to split. There is always an empty row to add a delimiter
+     */
+    private void initFurtherDelimitersTable() {
+        furtherDelimitersModel = new DefaultTableModel(new Object[]{"Delimiter", "Split"}, 0);
+        furtherDelimitersModel.addTableModelListener(e -> {
+            if (isSettingFurtherDelimiters) {
+                return;
+            }
+            int amountRows = furtherDelimitersModel.getRowCount();
+            if (0 == amountRows || !"".equals(furtherDelimitersModel.getValueAt(amountRows - 1, 0))) {
+                addFurtherDelimiterRow("", METHOD_DELIMITER_DISPOSAL_AT);
+            }
+        });
+        tableFurtherDelimiters.setModel(furtherDelimitersModel);
+        tableFurtherDelimiters.getColumnModel().getColumn(1)
+                .setCellEditor(new DefaultCellEditor(new JComboBox<>(LABELS_DELIMITER_DISPOSAL)));
+        tableFurtherDelimiters.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+
+        addFurtherDelimiterRow("", METHOD_DELIMITER_DISPOSAL_AT);
+    }
+
+    private void updateReflowOptionsEnabled() {
+        textFieldReflowWidth.setEnabled(checkboxReflow.isSelected());
+        checkboxOptimalFit.setEnabled(checkboxReflow.isSelected());
+    }
+
+    private void addFurtherDelimiterRow(String delimiter, int delimiterDisposalMethod) {
+        furtherDelimitersModel.addRow(new Object[]{delimiter, LABELS_DELIMITER_DISPOSAL[delimiterDisposalMethod]});
+    }
+
     /**
      * Handle click ok event
      */
     private void onOK() {
+        if (tableFurtherDelimiters.isEditing()) {
+            tableFurtherDelimiters.getCellEditor().stopCellEditing();
+        }
         clickedOk = true;
-        dispose();
+        setVisible(false);
     }
 
     /**
@@ -86,7 +155,7 @@ public class DialogSplitOptions extends JDialog {
      */
     private void onCancel() {
         clickedOk = false;
-        dispose();
+        setVisible(false);
     }
 
     /**
@@ -153,6 +222,50 @@ public class DialogSplitOptions extends JDialog {
         }
     }
 
+    /**
+     * @return  Map     Further delimiters (w/o empty ones) mapped to their delimiter disposal method, in order of entry
+     */
+    public Map<String, Integer> getFurtherDelimiters() {
+        if (tableFurtherDelimiters.isEditing()) {
+            tableFurtherDelimiters.getCellEditor().stopCellEditing();
+        }
+
+        Map<String, Integer> delimiters = new LinkedHashMap<>();
+        for (int row = 0; row < furtherDelimitersModel.getRowCount(); row++) {
+            String delimiter = (String) furtherDelimitersModel.getValueAt(row, 0);
+            if (null != delimiter && !delimiter.isEmpty() && !delimiters.containsKey(delimiter)) {
+                String disposal = (String) furtherDelimitersModel.getValueAt(row, 1);
+                delimiters.put(delimiter, LABELS_DELIMITER_DISPOSAL[1].equals(disposal)
+                        ? METHOD_DELIMITER_DISPOSAL_BEFORE
+                        : (LABELS_DELIMITER_DISPOSAL[2].equals(disposal) ? METHOD_DELIMITER_DISPOSAL_AFTER : METHOD_DELIMITER_DISPOSAL_AT));
+            }
+        }
+
+        return delimiters;
+    }
+
+    /**
+     * @param   delimiters  Further delimiters mapped to their delimiter disposal method
+     */
+    public void setFurtherDelimiters(Map<String, Integer> delimiters) {
+        isSettingFurtherDelimiters = true;
+        furtherDelimitersModel.setRowCount(0);
+        for (Map.Entry<String, Integer> delimiter : delimiters.entrySet()) {
+            int disposal = delimiter.getValue();
+            addFurtherDelimiterRow(delimiter.getKey(), disposal >= 0 && disposal <= 2 ? disposal : METHOD_DELIMITER_DISPOSAL_AT);
+        }
+        addFurtherDelimiterRow("", METHOD_DELIMITER_DISPOSAL_AT);
+        isSettingFurtherDelimiters = false;
+    }
+
+    public void setCheckboxRegexSelected(boolean selected) {
+        checkboxRegex.setSelected(selected);
+    }
+
+    public boolean getIsSelectedRegex() {
+        return checkboxRegex.isSelected();
+    }
+
     public void setCheckboxTrimWhitespaceSelected(boolean selected) {
         checkboxTrimWhitespace.setSelected(selected);
     }
@@ -160,4 +273,41 @@ public class DialogSplitOptions extends JDialog {
     public boolean getIsSelectedTrimWhitespace() {
         return checkboxTrimWhitespace.isSelected();
     }
+
+    public void setCheckboxReflowSelected(boolean selected) {
+        checkboxReflow.setSelected(selected);
+        updateReflowOptionsEnabled();
+    }
+
+    public boolean getIsSelectedReflow() {
+        return checkboxReflow.isSelected();
+    }
+
+    /**
+     * @param   width   Maximum line width in columns
+     */
+    public void setReflowWidth(int width) {
+        textFieldReflowWidth.setText(Integer.toString(width));
+    }
+
+    /**
+     * @param   defaultWidth    Width to be returned if the entered one is no positive number
+     * @return  int             Maximum line width in columns
+     */
+    public int getReflowWidth(int defaultWidth) {
+        try {
+            int width = Integer.parseInt(textFieldReflowWidth.getText().trim());
+            return width > 0 ? width : defaultWidth;
+        } catch (NumberFormatException e) {
+            return defaultWidth;
+        }
+    }
+
+    public void setCheckboxOptimalFitSelected(boolean selected) {
+        checkboxOptimalFit.setSelected(selected);
+    }
+
+    public boolean getIsSelectedOptimalFit() {
+        return checkboxOptimalFit.isSelected();
+    }
 }
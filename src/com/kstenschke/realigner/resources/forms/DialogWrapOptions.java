@@ -15,19 +15,24 @@
  */
 package com.kstenschke.realigner.resources.forms;
 
-import com.intellij.uiDesigner.core.GridConstraints;
-import com.intellij.uiDesigner.core.GridLayoutManager;
+import com.intellij.ui.DocumentAdapter;
 import com.kstenschke.realigner.listeners.KeyListenerCursorUpDown;
 import com.kstenschke.realigner.JTextFieldAddUndoManager;
-import com.kstenschke.realigner.PopupWrapButton;
+import com.kstenschke.realigner.PopupQuickWrapList;
 import com.kstenschke.realigner.Preferences;
 import com.kstenschke.realigner.SettingsQuickWraps;
 import com.kstenschke.realigner.listeners.FocusListenerPrefix;
+import com.kstenschke.realigner.core.SubstringIndex;
+import com.kstenschke.realigner.models.QuickWrap;
 import com.kstenschke.realigner.resources.Icons;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class DialogWrapOptions extends JDialog {
 
@@ -36,7 +41,7 @@ public class DialogWrapOptions extends JDialog {
     private JButton buttonSave;
 
     private JPanel contentPane;
-    private JPanel panelWrapButtonsContainer;
+    private JList<QuickWrap> listQuickWraps;
     private JPanel quickWrapButtonsPanel;
     private JPanel defaultPanel;
     private JPanel panelMainButtons;
@@ -44,6 +49,7 @@ public class DialogWrapOptions extends JDialog {
 
     private JTextField textFieldPostfix;
     private JTextField textFieldPrefix;
+    private JTextField textFieldQuickWrapFilter;
 
     public JRadioButton quickAutodetectRadioButton;
     public JRadioButton quickUnwrapRadioButton;
@@ -56,8 +62,14 @@ public class DialogWrapOptions extends JDialog {
     private JPanel panelMultiLineOptions;
 
     private String firedButtonLabel = null;
-    private String firedPrefix      = null;
-    private String firedPostfix     = null;
+
+    // All quick wraps, indexed for filtering, and the model of those currently listed
+    private List<QuickWrap> quickWraps                  = Collections.emptyList();
+    private SubstringIndex quickWrapsIndex              = null;
+    private final QuickWrapListModel quickWrapListModel = new QuickWrapListModel();
+
+    // Amount of quick wraps visible at once, more are scrolled to
+    private static final int VISIBLE_QUICK_WRAPS = 12;
 
     // Wrap modes
     private static final int MODE_WRAP_EACH_LINE = 0;
@@ -74,7 +86,7 @@ public class DialogWrapOptions extends JDialog {
     /**
      * Constructor
      */
-    public DialogWrapOptions(boolean isMultiLineSelection) {
+    public DialogWrapOptions() {
         this.operation = OPERATION_CANCEL;
 
         setContentPane(contentPane);
@@ -88,12 +100,12 @@ public class DialogWrapOptions extends JDialog {
         new JTextFieldAddUndoManager(this.textFieldPrefix);
         new JTextFieldAddUndoManager(this.textFieldPostfix);
 
-        initQuickWrapButtons();
+        initQuickWrapList();
+        initQuickWraps();
+        initQuickWrapFilter();
         initButtonActionListeners();
         initRadioButtonActionListeners();
 
-        panelMultiLineOptions.setVisible(isMultiLineSelection);
-
         setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
         addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
@@ -102,6 +114,29 @@ public class DialogWrapOptions extends JDialog {
         });
 
         contentPane.registerKeyboardAction(e -> onCancel(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+
+        // The dialog is reused: focus the prefix each time it is shown
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                textFieldPrefix.requestFocusInWindow();
+            }
+        });
+    }
+
+    /**
+     * Reset state of the previous use, before showing the dialog again
+     *
+     * @param   isMultiLineSelection    Show multi-line options?
+     */
+    public void reset(boolean isMultiLineSelection) {
+        this.operation        = OPERATION_CANCEL;
+        this.firedButtonLabel = null;
+
+        panelMultiLineOptions.setVisible(isMultiLineSelection);
+        textFieldQuickWrapFilter.setText("");
+        listQuickWraps.clearSelection();
+        initQuickWraps();
     }
 
     /**
@@ -138,42 +173,120 @@ public class DialogWrapOptions extends JDialog {
     }
 
     /**
-     * Init quick wrap buttons from stored wrap button item configs, or hide resp. sub panel
+     * Init list of quick wraps: only the visible rows are painted, by one shared renderer component
+     */
+    private void initQuickWrapList() {
+        listQuickWraps.setModel(quickWrapListModel);
+        listQuickWraps.setCellRenderer(new QuickWrapCellRenderer());
+        listQuickWraps.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        listQuickWraps.setVisibleRowCount(VISIBLE_QUICK_WRAPS);
+
+        // Fixed cell size from a prototype: no measuring of every quick wrap
+        listQuickWraps.setPrototypeCellValue(new QuickWrap("/** Prototype quick wrap label ... */", "", ""));
+
+        // Click applies the quick wrap, right-click selects it and opens the context menu
+        listQuickWraps.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int index = listQuickWraps.locationToIndex(e.getPoint());
+                if (-1 != index && listQuickWraps.getCellBounds(index, index).contains(e.getPoint())) {
+                    listQuickWraps.setSelectedIndex(index);
+                }
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                QuickWrap quickWrap = listQuickWraps.getSelectedValue();
+                if (SwingUtilities.isLeftMouseButton(e) && null != quickWrap
+                 && listQuickWraps.getCellBounds(listQuickWraps.getSelectedIndex(), listQuickWraps.getSelectedIndex()).contains(e.getPoint())
+                ) {
+                    applyQuickWrap(quickWrap);
+                }
+            }
+        });
+        listQuickWraps.addMouseListener(new PopupQuickWrapList(listQuickWraps, this).getPopupListener());
+
+        // Entering the list via cursor keys selects its first item
+        listQuickWraps.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                if (-1 == listQuickWraps.getSelectedIndex() && quickWrapListModel.getSize() > 0) {
+                    listQuickWraps.setSelectedIndex(0);
+                }
+            }
+        });
+
+        // Add acceleration via cursor up/down keys to prefix- and filter-field
+        textFieldPrefix.addKeyListener(new KeyListenerCursorUpDown(listQuickWraps, listQuickWraps));
+        textFieldQuickWrapFilter.addKeyListener(new KeyListenerCursorUpDown(listQuickWraps, listQuickWraps));
+    }
+
+    /**
+     * Load stored quick wraps into the list, or hide resp. sub panel
      */
-    private void initQuickWrapButtons() {
-        if (!SettingsQuickWraps.areAnyButtonsConfigured()) {
+    private void initQuickWraps() {
+        List<QuickWrap> storedQuickWraps = SettingsQuickWraps.getQuickWraps();
+        if (storedQuickWraps == quickWraps && null != quickWrapsIndex) {
+            // Unchanged since last shown: keep index
+            quickWrapListModel.setQuickWraps(getFilteredQuickWraps());
+            return;
+        }
+
+        if (storedQuickWraps.isEmpty()) {
+            quickWraps      = Collections.emptyList();
+            quickWrapsIndex = null;
+            quickWrapListModel.setQuickWraps(quickWraps);
             quickWrapButtonsPanel.setVisible(false);
         } else {
-            // Create, add and show quick wrap buttons
-            Object[] allButtonsLabels           = SettingsQuickWraps.getAllButtonLabels();
-            Object[] allButtonPrefixConfigs     = SettingsQuickWraps.getAllButtonPrefixes();
-            Object[] allButtonPostfixConfigs    = SettingsQuickWraps.getAllButtonPostfixes();
-
-            // Cleanup wrap buttons panel, set layout: grid with a row per quick wrap button
-            panelWrapButtonsContainer.removeAll();
-            panelWrapButtonsContainer.setLayout(new GridLayoutManager(allButtonsLabels.length, 1, new Insets(0, 0, 0, 0), 0, 0, true, false));
-
-            this.addQuickWrapButtons(allButtonsLabels, allButtonPrefixConfigs, allButtonPostfixConfigs);
-            int amountButtons = allButtonsLabels.length;
-            if (amountButtons > 0) {
-                // Add acceleration via cursor up/down keys to prefix-field and all quick-buttons
-                textFieldPrefix.addKeyListener(new KeyListenerCursorUpDown(
-                        panelWrapButtonsContainer.getComponent(0), panelWrapButtonsContainer.getComponent(amountButtons - 1)
-                ));
-                for (int buttonIndex=0; buttonIndex< allButtonsLabels.length; buttonIndex++) {
-                    Component buttonCurrent = panelWrapButtonsContainer.getComponent(buttonIndex);
-                    Component buttonAbove   = panelWrapButtonsContainer.getComponent(buttonIndex > 0 ? buttonIndex-1 : amountButtons-1);
-                    Component buttonUnder   = panelWrapButtonsContainer.getComponent(buttonIndex < amountButtons-1 ? buttonIndex+1 : 0);
-
-                    buttonCurrent.addKeyListener(new KeyListenerCursorUpDown(buttonUnder, buttonAbove));
-                }
+            // Index label, prefix and postfix of all quick wraps for filtering
+            quickWraps = storedQuickWraps;
+            List<String> searchTexts = new ArrayList<>(quickWraps.size());
+            for (QuickWrap quickWrap : quickWraps) {
+                searchTexts.add(quickWrap.getLabel() + "\n" + quickWrap.getPrefix() + "\n" + quickWrap.getPostfix());
             }
+            quickWrapsIndex = new SubstringIndex(searchTexts);
 
-            panelWrapButtonsContainer.revalidate();
+            quickWrapListModel.setQuickWraps(getFilteredQuickWraps());
             quickWrapButtonsPanel.setVisible(true);
         }
     }
 
+    /**
+     * Add filtering of the quick wraps on every keystroke, applying the first match via ENTER
+     */
+    private void initQuickWrapFilter() {
+        textFieldQuickWrapFilter.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(DocumentEvent e) {
+                if (null != quickWrapsIndex) {
+                    quickWrapListModel.setQuickWraps(getFilteredQuickWraps());
+                }
+            }
+        });
+        textFieldQuickWrapFilter.addActionListener(e -> {
+            if (quickWrapListModel.getSize() > 0) {
+                applyQuickWrap(quickWrapListModel.getElementAt(0));
+            }
+        });
+    }
+
+    /**
+     * @return  List    Quick wraps whose label, prefix or postfix contains the filter text
+     */
+    private List<QuickWrap> getFilteredQuickWraps() {
+        int[] ids = quickWrapsIndex.find(textFieldQuickWrapFilter.getText());
+        if (ids.length == quickWraps.size()) {
+            return quickWraps;
+        }
+
+        List<QuickWrap> filteredQuickWraps = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            filteredQuickWraps.add(quickWraps.get(id));
+        }
+
+        return filteredQuickWraps;
+    }
+
     private ActionListener getActionListenerSaveQuickWrapButton() {
         final DialogWrapOptions dialog = this;
 
@@ -183,7 +296,7 @@ public class DialogWrapOptions extends JDialog {
 
             SettingsQuickWraps.saveButton(prefix + "..." + postfix, prefix, postfix);
 
-            dialog.refreshQuickWrapButtons();
+            dialog.refreshQuickWraps();
         };
     }
 
@@ -203,32 +316,17 @@ public class DialogWrapOptions extends JDialog {
         return e -> Preferences.saveQuickWrapMode(mode);
     }
 
-    private void addQuickWrapButtons(Object[] allButtonsLabels, Object[] allButtonPrefixConfigs, Object[] allButtonPostfixConfigs) {
-        for (int i = 0; i < allButtonsLabels.length; i++) {
-            String buttonLabel = allButtonsLabels[i].toString();
-            final JButton wrapButton = new JButton(buttonLabel);
-            wrapButton.setName("quickWrapButton" + String.valueOf(i));
-            panelWrapButtonsContainer.add(
-                    wrapButton,
-                    new GridConstraints(i, 0, 1, 1, GridConstraints.ANCHOR_NORTH, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false)
-            );
-
-            // Add button action
-            final String prefix = allButtonPrefixConfigs[i].toString();
-            final String postfix= allButtonPostfixConfigs[i].toString();
-
-            wrapButton.addActionListener(e -> {
-                // Perform Un/Wrap
-                setTextFieldPrefix(prefix);
-                setTextFieldPostfix(postfix);
-
-                onOK();
-            });
-
-            // Add context menu
-            PopupWrapButton popupWrapButton = new PopupWrapButton(wrapButton, this);
-            wrapButton.addMouseListener(popupWrapButton.getPopupListener());
-        }
+    /**
+     * Un/wrap with prefix and postfix of the given quick wrap
+     *
+     * @param   quickWrap
+     */
+    private void applyQuickWrap(QuickWrap quickWrap) {
+        setTextFieldPrefix(quickWrap.getPrefix());
+        setTextFieldPostfix(quickWrap.getPostfix());
+        this.firedButtonLabel = quickWrap.getLabel();
+
+        onOK();
     }
 
     /**
@@ -240,28 +338,18 @@ public class DialogWrapOptions extends JDialog {
                 : (quickWrapRadioButton.isSelected() ? OPERATION_WRAP : OPERATION_UNWRAP);
 
         Component focusOwner = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusOwner();
-        if (null != focusOwner) {
-            String focusOwnerName = focusOwner.getName();
-            if (null != focusOwnerName && focusOwnerName.startsWith("quickWrapButton")) {
-                // Quick-wrap button was hit (clicked, or fired via SPACE or ENTER)
-
-                // ENTER would fire the outer [Wrap] button-
-                // to apply quick-wrap buttons also via ENTER update the wrapping preferences now
-                int indexWrap = Integer.parseInt(focusOwnerName.replace("quickWrapButton", ""));
-
-                String prefix = SettingsQuickWraps.getButtonPrefix(indexWrap);
-                String postfix= SettingsQuickWraps.getButtonPostfix(indexWrap);
-                setTextFieldPrefix(prefix);
-                setTextFieldPostfix(postfix);
-
-                this.firedButtonLabel   = ((JButton)focusOwner).getText();
-                this.firedPrefix        = prefix;
-                this.firedPostfix       = postfix;
-            }
+        QuickWrap quickWrap  = listQuickWraps.getSelectedValue();
+        if (listQuickWraps == focusOwner && null != quickWrap) {
+            // Quick-wrap was selected in the list and fired via ENTER, which fires the outer [Wrap] button:
+            // to apply quick-wraps also via ENTER update the wrapping preferences now
+            setTextFieldPrefix(quickWrap.getPrefix());
+            setTextFieldPostfix(quickWrap.getPostfix());
+
+            this.firedButtonLabel = quickWrap.getLabel();
         }
 
         this.operation = operation;
-        dispose();
+        setVisible(false);
     }
 
     /**
@@ -269,7 +357,7 @@ public class DialogWrapOptions extends JDialog {
      */
     private void onCancel() {
         operation = OPERATION_CANCEL;
-        dispose();
+        setVisible(false);
     }
 
     /**
@@ -305,7 +393,8 @@ public class DialogWrapOptions extends JDialog {
     }
 
     public static void main(String[] args) {
-        DialogWrapOptions dialog = new DialogWrapOptions(true);
+        DialogWrapOptions dialog = new DialogWrapOptions();
+        dialog.reset(true);
 
         dialog.pack();
         dialog.setVisible(true);
@@ -313,16 +402,61 @@ public class DialogWrapOptions extends JDialog {
     }
 
     /**
-     * Refresh quickWrap buttons and resize the dialog to fit them in
+     * Reload quick wraps into the list, resize the dialog in case the list was shown or hidden
      */
-    public void refreshQuickWrapButtons() {
-        this.initQuickWrapButtons();
+    public void refreshQuickWraps() {
+        this.initQuickWraps();
         this.pack();
     }
 
-    public void makeFiredButtonTopMost() {
+    public void recordFiredButtonUse() {
         if (null != this.firedButtonLabel) {
-            SettingsQuickWraps.makeButtonTopMost(this.firedButtonLabel, this.firedPrefix, this.firedPostfix);
+            SettingsQuickWraps.recordButtonUse(this.firedButtonLabel);
+        }
+    }
+
+    /**
+     * List model of the quick wraps currently listed
+     */
+    private static class QuickWrapListModel extends AbstractListModel<QuickWrap> {
+
+        private List<QuickWrap> quickWraps = Collections.emptyList();
+
+        void setQuickWraps(List<QuickWrap> quickWraps) {
+            int sizeBefore  = this.quickWraps.size();
+            this.quickWraps = quickWraps;
+
+            if (sizeBefore > 0) {
+                fireIntervalRemoved(this, 0, sizeBefore - 1);
+            }
+            if (!quickWraps.isEmpty()) {
+                fireIntervalAdded(this, 0, quickWraps.size() - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return quickWraps.size();
+        }
+
+        @Override
+        public QuickWrap getElementAt(int index) {
+            return quickWraps.get(index);
+        }
+    }
+
+    /**
+     * Renders a quick wrap by its label, the wrap LHS and RHS strings as tooltip
+     */
+    private static class QuickWrapCellRenderer extends DefaultListCellRenderer {
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+            QuickWrap quickWrap = (QuickWrap) value;
+            super.getListCellRendererComponent(list, quickWrap.getLabel(), index, isSelected, cellHasFocus);
+            setToolTipText(quickWrap.getPrefix() + " ... " + quickWrap.getPostfix());
+
+            return this;
         }
     }
 }
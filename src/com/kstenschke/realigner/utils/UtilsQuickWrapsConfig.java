@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2018 Kay Stenschke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kstenschke.realigner.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static helper methods for the custom serialized quick-wraps config string:
+ * ##WBUTTON####WBLABEL##label##/WBLABEL####WBPREFIX##prefix##/WBPREFIX####WBPOSTFIX##postfix##/WBPOSTFIX####/WBUTTON##
+ */
+public class UtilsQuickWrapsConfig {
+
+    /**
+     * @param   itemsConfig Custom serialized items config string
+     * @param   typeName    String e.g. "WBPREFIX"
+     * @return  Object[]    Array of stored buttons' values of the given type
+     */
+    public static Object[] getAllButtonAttributesByType(String itemsConfig, String typeName) {
+        typeName = typeName.trim().toUpperCase();
+
+        // Extract only item prefixes into array
+        List<String> items = new ArrayList<>();
+        if (itemsConfig != null && !itemsConfig.isEmpty()) {
+            String[] buttonConfigs = itemsConfig.split("##" + typeName + "##");
+
+            for (int i = 1; i < buttonConfigs.length; i++) {
+                items.add(buttonConfigs[i].split("##/" + typeName + "##")[0]);
+            }
+        }
+
+        return items.toArray();
+    }
+}
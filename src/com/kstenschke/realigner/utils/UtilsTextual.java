@@ -15,68 +15,11 @@
  */
 package com.kstenschke.realigner.utils;
 
-import com.intellij.openapi.editor.Document;
-
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Static helper methods for analysis and manipulation of texts
  */
 public class UtilsTextual {
 
-    /**
-     * Get sub sequence from given offset region
-     *
-     * @param   haystack        Text from which the sub string is to be extracted
-     * @param   offsetStart     Starting offset
-     * @param   offsetEnd       Ending offset
-     * @return  String
-     */
-    public static String getSubString(CharSequence haystack, int offsetStart, int offsetEnd) {
-        return haystack.length() == 0
-                ? null
-                : haystack.subSequence(offsetStart, offsetEnd).toString();
-    }
-
-    /**
-     * @param   document       The full document
-     * @param   startLine      Starting line number
-     * @param   endLine        Ending line number
-     * @return  List<String>
-     */
-    public static List<String> extractLines(Document document, int startLine, int endLine) {
-        List<String> lines = new ArrayList<>(endLine - startLine);
-
-        for (int i = startLine; i <= endLine; i++) {
-            String line = UtilsTextual.extractLine(document, i);
-
-            lines.add(line);
-        }
-
-        return lines;
-    }
-
-    /**
-     * @param   document
-     * @param   lineNumber     Number of line to be extracted
-     * @return  String         The extracted line
-     */
-    public static String extractLine(Document document, int lineNumber) {
-        int lineSeparatorLength = document.getLineSeparatorLength(lineNumber);
-        int startOffset         = document.getLineStartOffset(lineNumber);
-        int endOffset           = document.getLineEndOffset(lineNumber) + lineSeparatorLength;
-
-        String line = document.getCharsSequence().subSequence(startOffset, endOffset).toString();
-
-        // If last line has no \n, add it one
-        // This causes adding a \n at the end of file when sort is applied on whole file and the file does not end
-        // with \n... This is fixed after.
-        return lineSeparatorLength == 0
-                ? line + "\n"
-                : line;
-    }
-
     /**
      * @param   str         String to be checked for containing an HTML tag
      * @return  boolean     Does the given string contain an HTML tag?
@@ -95,40 +38,83 @@ public class UtilsTextual {
     }
 
     /**
-     * @param   str     String to be transformed
-     * @param   prefix  Prefix to be removed
-     * @param   postfix Postfix to be removed
-     * @return  String  Given string with prefix and postfix removed
+     * @param   haystack        Text to be searched
+     * @param   needle          String to be found
+     * @param   offsetStart     Offset to start searching at
+     * @param   offsetEnd       Offset where the found needle has to end at the latest
+     * @return  int             Offset of first occurrence of needle within given range, or -1
      */
-    public static String unwrap(String str, String prefix, String postfix) {
-        if (null == str) {
-            return null;
+    public static int indexOf(CharSequence haystack, String needle, int offsetStart, int offsetEnd) {
+        int needleLength = needle.length();
+        if (0 == needleLength) {
+            return -1;
         }
-        if (str.startsWith(prefix)) {
-            str = str.substring(prefix.length());
+        char firstChar = needle.charAt(0);
+        int offsetLast = offsetEnd - needleLength;
+
+        for (int offset = offsetStart; offset <= offsetLast; offset++) {
+            if (haystack.charAt(offset) == firstChar && startsWith(haystack, offset, needle)) {
+                return offset;
+            }
         }
-        if (str.endsWith(postfix)) {
-            str = str.substring(0, str.length() - postfix.length());
+
+        return -1;
+    }
+
+    /**
+     * @param   haystack
+     * @param   offset      Offset within haystack to compare at
+     * @param   needle
+     * @return  boolean     Does the haystack contain the needle at the given offset?
+     */
+    public static boolean startsWith(CharSequence haystack, int offset, String needle) {
+        int needleLength = needle.length();
+        if (offset < 0 || offset + needleLength > haystack.length()) {
+            return false;
+        }
+        for (int i = 0; i < needleLength; i++) {
+            if (haystack.charAt(offset + i) != needle.charAt(i)) {
+                return false;
+            }
         }
 
-        return str;
+        return true;
     }
 
-    public static String lTrim(String str) {
-        int i = 0;
-        while (i < str.length() && Character.isWhitespace(str.charAt(i))) {
-            i++;
+    /**
+     * @param   text
+     * @param   offset      Offset to start at
+     * @return  String      Whitespace the given text contains beginning from the given offset
+     */
+    public static String getLeadingWhitespace(CharSequence text, int offset) {
+        int offsetEnd = offset;
+        while (offsetEnd < text.length() && Character.isWhitespace(text.charAt(offsetEnd))) {
+            offsetEnd++;
         }
 
-        return str.substring(i);
+        return text.subSequence(offset, offsetEnd).toString();
     }
 
     /**
-     * @param   str
-     * @return  Amount of tabs in given string
+     * Trim leading and trailing whitespace (like String.trim()) of the buffer's tail beginning at the given offset, in place
+     *
+     * @param   buffer
+     * @param   offset      Offset of the tail to be trimmed
      */
-    public static Integer countTabOccurrences(String str) {
-        return str.length() - str.replaceAll("\t", "").length();
+    public static void trim(StringBuilder buffer, int offset) {
+        int offsetEnd = buffer.length();
+        while (offsetEnd > offset && buffer.charAt(offsetEnd - 1) <= ' ') {
+            offsetEnd--;
+        }
+        buffer.setLength(offsetEnd);
+
+        int offsetTrimmedStart = offset;
+        while (offsetTrimmedStart < offsetEnd && buffer.charAt(offsetTrimmedStart) <= ' ') {
+            offsetTrimmedStart++;
+        }
+        if (offsetTrimmedStart > offset) {
+            buffer.delete(offset, offsetTrimmedStart);
+        }
     }
 
     /**
@@ -136,16 +122,32 @@ public class UtilsTextual {
      * @return  String  All lines being trimmed from leading and trailing whitespace
      */
     public static String trimLines(String text) {
-        String[] lines  = text.split("\n");
-        String result   = "";
-        for (String line : lines) {
-            line = line.trim();
-            if (!line.isEmpty() /*|| keepEmptyLines*/) {
-                result += line + "\n";
+        int length = text.length();
+        StringBuilder result = new StringBuilder(length + 1);
+
+        int offsetLineStart = 0;
+        while (offsetLineStart < length) {
+            int offsetLineEnd = text.indexOf('\n', offsetLineStart);
+            if (-1 == offsetLineEnd) {
+                offsetLineEnd = length;
             }
+
+            int offsetTrimStart = offsetLineStart;
+            int offsetTrimEnd   = offsetLineEnd;
+            while (offsetTrimStart < offsetTrimEnd && text.charAt(offsetTrimStart) <= ' ') {
+                offsetTrimStart++;
+            }
+            while (offsetTrimEnd > offsetTrimStart && text.charAt(offsetTrimEnd - 1) <= ' ') {
+                offsetTrimEnd--;
+            }
+            if (offsetTrimStart < offsetTrimEnd) {
+                result.append(text, offsetTrimStart, offsetTrimEnd).append('\n');
+            }
+
+            offsetLineStart = offsetLineEnd + 1;
         }
 
-        return result;
+        return result.toString();
     }
 
     /**